@@ -0,0 +1,60 @@
+package academy.prog;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.stream.Stream;
+
+/*
+    Embedded H2 + full application context for benchmarks, no network needed.
+    Rows are bulk loaded before the context starts so that the Bloom filter
+    and the id allocator see them exactly like after a restart.
+ */
+
+final class BenchmarkApplication {
+    static final String URL_PREFIX = "https://example.com/page/";
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(long rows, String... properties) throws SQLException {
+        return start(WebApplicationType.NONE, rows, properties);
+    }
+
+    // web server on a random port, R2DBC points at the same database for the reactive profile
+    static ConfigurableApplicationContext start(WebApplicationType type, long rows, String... properties)
+            throws SQLException {
+        var database = "bench" + System.nanoTime();
+        var jdbcUrl = "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1";
+        load(jdbcUrl, rows);
+
+        var defaults = Stream.of("server.port=0",
+                "spring.datasource.url=" + jdbcUrl,
+                "spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1",
+                "spring.main.banner-mode=off",
+                "logging.level.root=warn",
+                "happyurl.bloom.expected-ids=" + Math.max(rows * 2, 1_000_000));
+
+        // as command line arguments, default properties would lose to application(-profile).properties
+        return new SpringApplicationBuilder(HappyUrlApplication.class)
+                .web(type)
+                .run(Stream.concat(defaults, Stream.of(properties)).map(x -> "--" + x).toArray(String[]::new));
+    }
+
+    private static void load(String jdbcUrl, long rows) throws SQLException {
+        Flyway.configure().dataSource(jdbcUrl, "sa", "").load().migrate();
+
+        try (var connection = DriverManager.getConnection(jdbcUrl, "sa", "");
+             var statement = connection.createStatement()) {
+            // digest = first 16 bytes of SHA-256, same as UrlDigest
+            statement.execute("insert into url_record (id, count, last_access, url, digest) " +
+                    "select x, 0, current_timestamp, u, cast(substring(hash('SHA-256', u), 1, 16) as binary(16)) " +
+                    "from (select x, '" + URL_PREFIX + "' || x u from system_range(1, " + rows + "))");
+            statement.execute("update url_id_allocator set next_id = " + (rows + 1));
+        }
+    }
+}
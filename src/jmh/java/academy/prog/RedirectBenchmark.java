@@ -0,0 +1,94 @@
+package academy.prog;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Cache-hit redirect through DispatcherServlet + UrlController vs RedirectFilter.
+    Both get the same mock request / response, baseline allocates only those.
+    Run with the GC profiler, gc.alloc.rate.norm is bytes per redirect:
+
+    mvn -Pbench verify -DskipTests -Djmh.include=RedirectBenchmark -Djmh.args="-prof gc"
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectBenchmark {
+    private static final int HOT_SET = 512;
+    private static final FilterChain UNREACHABLE = (req, res) -> {
+        throw new IllegalStateException("cache miss in the fast path");
+    };
+
+    private ConfigurableApplicationContext context;
+    private DispatcherServlet dispatcherServlet;
+    private RedirectFilter redirectFilter;
+    private String[] paths;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET, HOT_SET,
+                "spring.mvc.servlet.load-on-startup=1");
+        dispatcherServlet = context.getBean(DispatcherServlet.class);
+        redirectFilter = (RedirectFilter) context.getBean("redirectFilter", FilterRegistrationBean.class).getFilter();
+
+        var urlService = context.getBean(UrlService.class);
+        var shortCodec = context.getBean(ShortCodec.class);
+        paths = new String[HOT_SET];
+        for (int i = 0; i < HOT_SET; i++) {
+            paths[i] = RedirectFilter.PATH + shortCodec.encode(i + 1);
+            urlService.getTarget(i + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object baseline() {
+        return new Exchange(randomPath());
+    }
+
+    @Benchmark
+    public int dispatcher() throws Exception {
+        var exchange = new Exchange(randomPath());
+        dispatcherServlet.service(exchange.request, exchange.response);
+
+        return exchange.response.getStatus();
+    }
+
+    @Benchmark
+    public int filter() throws Exception {
+        var exchange = new Exchange(randomPath());
+        redirectFilter.doFilter(exchange.request, exchange.response, UNREACHABLE);
+
+        return exchange.response.getStatus();
+    }
+
+    private String randomPath() {
+        return paths[ThreadLocalRandom.current().nextInt(HOT_SET)];
+    }
+
+    private static class Exchange {
+        private final MockHttpServletRequest request;
+        private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Exchange(String path) {
+            request = new MockHttpServletRequest("GET", path);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package academy.prog;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Closed-loop HTTP load test of GET /my/{code}: platform-thread Tomcat,
+    happyurl.threads.virtual (only on a Java 21+ runtime) and the reactive profile.
+    Each client holds one connection and loops over random links; the
+    cache is kept small so most redirects wait on JDBC.
+
+    mvn -Pbench test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+        -Dexec.args="-cp %classpath academy.prog.RedirectLoadTest [seconds] [clients,...] [modes,...]"
+
+    Prints p50 / p99 latency, throughput and errors per client count and
+    clients per core, the JSON goes to target/loadtest-result.json.
+ */
+
+public class RedirectLoadTest {
+    private static final long LINKS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int[] clients = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{50, 200, 1000, 2000};
+
+        var modes = args.length > 2
+                ? Arrays.stream(args[2].split(",")).map(x -> Mode.valueOf(x.toUpperCase())).toList()
+                : List.of(Mode.values());
+
+        var results = new ArrayList<String>();
+        for (var mode : modes) {
+            if (mode == Mode.VIRTUAL && Runtime.version().feature() < 21)
+                System.out.println("Java " + Runtime.version() + ": skipping virtual threads");
+            else
+                results.addAll(run(mode, seconds, clients));
+        }
+
+        Files.createDirectories(Path.of("target"));
+        Files.writeString(Path.of("target", "loadtest-result.json"), "[\n" + String.join(",\n", results) + "\n]\n");
+    }
+
+    private static List<String> run(Mode mode, int seconds, int[] clients) throws Exception {
+        var results = new ArrayList<String>();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        try (var context = BenchmarkApplication.start(mode.type, LINKS,
+                "spring.profiles.active=" + mode.profile,
+                "happyurl.threads.virtual=" + (mode == Mode.VIRTUAL),
+                "happyurl.cache.maximum-size=1000",
+                "server.tomcat.accept-count=10000")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            var shortCodec = context.getBean(ShortCodec.class);
+
+            for (int n : clients) {
+                var result = load(port, shortCodec, n, seconds);
+                var line = String.format(
+                        "{\"mode\": \"%s\", \"clients\": %d, \"clientsPerCore\": %.1f, \"requests\": %d, " +
+                                "\"errors\": %d, \"throughput\": %.1f, \"p50Ms\": %.3f, \"p99Ms\": %.3f}",
+                        mode.name().toLowerCase(), n, n / (double) cores, result.requests, result.errors,
+                        result.requests / (double) seconds, result.p50 / 1e6, result.p99 / 1e6);
+
+                System.out.println(line);
+                results.add(line);
+            }
+        }
+
+        return results;
+    }
+
+    private static Result load(int port, ShortCodec shortCodec, int clients, int seconds) throws InterruptedException {
+        var http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        var errors = new AtomicLong();
+        var latencies = new long[clients][];
+        var counts = new int[clients];
+
+        var threads = new ArrayList<Thread>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            var thread = new Thread(() -> {
+                var mine = new long[1024];
+                int count = 0;
+
+                while (System.nanoTime() < deadline) {
+                    var code = shortCodec.encode(ThreadLocalRandom.current().nextLong(LINKS) + 1);
+                    var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/my/" + code))
+                            .timeout(Duration.ofSeconds(30))
+                            .build();
+
+                    long started = System.nanoTime();
+                    try {
+                        var response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 302)
+                            errors.incrementAndGet();
+                    } catch (IOException ex) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+
+                    if (count == mine.length)
+                        mine = Arrays.copyOf(mine, count * 2);
+                    mine[count++] = System.nanoTime() - started;
+                }
+
+                latencies[client] = mine;
+                counts[client] = count;
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (var thread : threads)
+            thread.join();
+
+        int total = Arrays.stream(counts).sum();
+        var all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+
+        return new Result(total, errors.get(),
+                total == 0 ? 0 : all[(int) (total * 0.50)],
+                total == 0 ? 0 : all[Math.min(total - 1, (int) (total * 0.99))]);
+    }
+
+    private enum Mode {
+        PLATFORM(WebApplicationType.SERVLET, "default"),
+        VIRTUAL(WebApplicationType.SERVLET, "default"),
+        REACTIVE(WebApplicationType.REACTIVE, "reactive");
+
+        private final WebApplicationType type;
+        private final String profile;
+
+        Mode(WebApplicationType type, String profile) {
+            this.type = type;
+            this.profile = profile;
+        }
+    }
+
+    private record Result(long requests, long errors, long p50, long p99) {
+    }
+}
@@ -0,0 +1,52 @@
+package academy.prog;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Cache-miss lookup of a redirect target: managed UrlRecord via findById
+    vs the read-only two-column projection. Bytes per lookup with -prof gc:
+
+    mvn -Pbench verify -DskipTests -Djmh.include=RedirectLookupBenchmark -Djmh.args="-prof gc"
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectLookupBenchmark {
+    private static final long ROWS = 100_000;
+
+    private ConfigurableApplicationContext context;
+    private UrlRepository urlRepository;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(ROWS);
+        urlRepository = context.getBean(UrlRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String entity() {
+        return urlRepository.findById(randomId()).orElseThrow().getUrl();
+    }
+
+    @Benchmark
+    public String projection() {
+        return urlRepository.findRedirectById(randomId()).orElseThrow().url();
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(ROWS) + 1;
+    }
+}
@@ -0,0 +1,52 @@
+package academy.prog;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShortCodecBenchmark {
+    private static final int SIZE = 1024;
+
+    @Param({"false", "true"})
+    private boolean scramble;
+
+    private ShortCodec shortCodec;
+    private long[] ids;
+    private String[] codes;
+    private final byte[] buf = new byte[Base62.MAX_LENGTH];
+    private int i;
+
+    @Setup
+    public void setUp() {
+        shortCodec = new ShortCodec(scramble, 35, 0x5EED);
+        ids = new long[SIZE];
+        codes = new String[SIZE];
+
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = ThreadLocalRandom.current().nextLong(1, 100_000_000L);
+            codes[i] = shortCodec.encode(ids[i]);
+        }
+    }
+
+    @Benchmark
+    public String encode() {
+        return shortCodec.encode(ids[i++ & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public int encodeToBytes() {
+        return shortCodec.encode(ids[i++ & (SIZE - 1)], buf, 0) + buf[0];
+    }
+
+    @Benchmark
+    public long decode() {
+        return shortCodec.decode(codes[i++ & (SIZE - 1)]);
+    }
+}
@@ -0,0 +1,42 @@
+package academy.prog;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StatBenchmark {
+    @Param({"1000", "100000"})
+    private long rows;
+
+    private ConfigurableApplicationContext context;
+    private UrlService urlService;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(rows);
+        urlService = context.getBean(UrlService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object firstPage() {
+        return urlService.getStatistics(null, 100);
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) {
+        urlService.streamStatistics(blackhole::consume);
+    }
+}
@@ -0,0 +1,46 @@
+package academy.prog;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    Per-URL cost of canonicalization (including RedirectLocation validation),
+    with and without query sorting / tracking parameter removal.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlCanonicalizerBenchmark {
+    private static final String[] URLS = {
+            "https://example.com/",
+            "HTTP://Example.com:80/path/to/page?b=1&a=2",
+            "https://shop.example.com/products/%7eitem/42?utm_source=news&utm_medium=email&id=42&ref=home#reviews",
+            "https://example.com/search?q=caf%c3%a9&page=2&sort=asc&fbclid=IwAR0abcdef&lang=en"
+    };
+
+    @Param({"false", "true"})
+    private boolean query;
+
+    private UrlCanonicalizer canonicalizer;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        canonicalizer = new UrlCanonicalizer(query, query ? new String[]{"utm_*", "fbclid", "gclid"} : new String[0]);
+    }
+
+    @Benchmark
+    public String canonicalize() {
+        return canonicalizer.canonicalize(URLS[next++ & 3]);
+    }
+
+    @Benchmark
+    public String validateOnly() {
+        return RedirectLocation.of(UrlDigest.normalize(URLS[next++ & 3]));
+    }
+}
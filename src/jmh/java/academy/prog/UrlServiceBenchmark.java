@@ -0,0 +1,98 @@
+package academy.prog;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Shorten and redirect hot paths over a table of `rows` links.
+    The cache holds CACHE_SIZE entries: *Hit benchmarks cycle through
+    a hot set that fits, *Miss benchmarks pick random ids from the whole table.
+    The off-heap level is off, so a miss is a database lookup
+    (with it, the warm-up would turn most misses into off-heap hits).
+    10^7 rows take a few minutes to load and need the -Xmx below.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class UrlServiceBenchmark {
+    private static final int CACHE_SIZE = 1024;
+    private static final int HOT_SET = 512;
+
+    @Param({"10000", "1000000", "10000000"})
+    private long rows;
+
+    private ConfigurableApplicationContext context;
+    private UrlService urlService;
+    private UrlController urlController;
+    private ShortCodec shortCodec;
+    private String[] hotCodes;
+    private final AtomicLong newUrls = new AtomicLong();
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(rows, "happyurl.cache.maximum-size=" + CACHE_SIZE,
+                "happyurl.offheap.enabled=false");
+        urlService = context.getBean(UrlService.class);
+        urlController = context.getBean(UrlController.class);
+        shortCodec = context.getBean(ShortCodec.class);
+
+        hotCodes = new String[HOT_SET];
+        for (int i = 0; i < HOT_SET; i++) {
+            hotCodes[i] = shortCodec.encode(i + 1);
+            urlService.getTarget(i + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long saveUrlExisting() {
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl(BenchmarkApplication.URL_PREFIX + randomId());
+
+        return urlService.saveUrl(urlDTO);
+    }
+
+    @Benchmark
+    public long saveUrlNew() {
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl("https://example.org/new/" + newUrls.incrementAndGet());
+
+        return urlService.saveUrl(urlDTO);
+    }
+
+    @Benchmark
+    public RedirectTarget getUrlHit() {
+        return urlService.getTarget(ThreadLocalRandom.current().nextInt(HOT_SET) + 1);
+    }
+
+    @Benchmark
+    public RedirectTarget getUrlMiss() {
+        return urlService.getTarget(randomId());
+    }
+
+    @Benchmark
+    public Object redirectHit() {
+        return urlController.redirect(hotCodes[ThreadLocalRandom.current().nextInt(HOT_SET)]);
+    }
+
+    @Benchmark
+    public Object redirectMiss() {
+        return urlController.redirect(shortCodec.encode(randomId()));
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(rows) + 1;
+    }
+}
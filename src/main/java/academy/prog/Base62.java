@@ -0,0 +1,81 @@
+package academy.prog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+    [0-9A-Za-z] encoding of non-negative longs.
+    The byte[] / CharSequence variants don't allocate.
+ */
+
+public final class Base62 {
+    public static final int MAX_LENGTH = 11; // 62^11 > 2^63
+
+    private static final byte[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++)
+            VALUES[DIGITS[i]] = (byte) i;
+    }
+
+    private Base62() {
+    }
+
+    public static String encode(long value) {
+        var buf = new byte[MAX_LENGTH];
+        int length = encode(value, buf, 0);
+
+        return new String(buf, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    // writes ASCII digits at dst[offset], returns their count
+    public static int encode(long value, byte[] dst, int offset) {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative value: " + value);
+
+        int length = length(value);
+        for (int i = offset + length - 1; i >= offset; i--) {
+            dst[i] = DIGITS[(int) (value % 62)];
+            value /= 62;
+        }
+
+        return length;
+    }
+
+    public static int length(long value) {
+        int length = 1;
+        while (value >= 62) {
+            value /= 62;
+            length++;
+        }
+
+        return length;
+    }
+
+    // -1 if the text is empty, not base62, has leading zeros or does not fit into a long
+    public static long decode(CharSequence text, int from, int to) {
+        if (from >= to || to - from > MAX_LENGTH)
+            return -1;
+        if (to - from > 1 && text.charAt(from) == '0')
+            return -1; // one code per id
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int digit = c < 128 ? VALUES[c] : -1;
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / 62)
+                return -1;
+
+            value = value * 62 + digit;
+        }
+
+        return value;
+    }
+
+    public static long decode(CharSequence text) {
+        return decode(text, 0, text.length());
+    }
+}
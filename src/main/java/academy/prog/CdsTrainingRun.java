@@ -0,0 +1,58 @@
+package academy.prog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/*
+    happyurl.cds.training=true: the run that records the AppCDS archive
+    (mvn -Pcds package). Shortens and follows one link, so the classes of
+    the first request are archived as well, then exits - the JVM writes
+    the archive on the way out.
+ */
+
+@Component
+@ConditionalOnProperty("happyurl.cds.training")
+public class CdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(CdsTrainingRun.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        var port = event.getApplicationContext().getEnvironment().getProperty("local.server.port");
+        var base = "http://localhost:" + port;
+
+        try {
+            var shortUrl = get(base + "/shorten_simple?url=https://example.com/cds");
+            int at = shortUrl.indexOf("\"shortUrl\":\"") + "\"shortUrl\":\"".length();
+            int status = status(base + "/my/" + shortUrl.substring(at, shortUrl.indexOf('"', at)));
+            LOG.info("Training redirect answered {}, exiting", status);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+
+    private static String get(String url) throws IOException {
+        var connection = (HttpURLConnection) new URL(url).openConnection();
+        try (var in = connection.getInputStream()) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    private static int status(String url) throws IOException {
+        var connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setInstanceFollowRedirects(false);
+
+        return connection.getResponseCode();
+    }
+}
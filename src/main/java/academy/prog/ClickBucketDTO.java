@@ -0,0 +1,24 @@
+package academy.prog;
+
+import java.util.Date;
+
+public class ClickBucketDTO {
+    private Date start;
+    private long redirects;
+
+    public Date getStart() {
+        return start;
+    }
+
+    public void setStart(Date start) {
+        this.start = start;
+    }
+
+    public long getRedirects() {
+        return redirects;
+    }
+
+    public void setRedirects(long redirects) {
+        this.redirects = redirects;
+    }
+}
@@ -0,0 +1,75 @@
+package academy.prog;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public class ClickBucketRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClickBucketRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void append(List<Bucket> buckets) {
+        jdbcTemplate.batchUpdate(
+                "insert into url_click_bucket (url_id, resolution, bucket_start, clicks) values (?, ?, ?, ?)",
+                buckets, buckets.size(), (ps, bucket) -> {
+                    ps.setLong(1, bucket.id());
+                    ps.setString(2, bucket.resolution().code);
+                    ps.setTimestamp(3, new Timestamp(bucket.start()));
+                    ps.setLong(4, bucket.clicks());
+                });
+    }
+
+    // coarser rows are reported at their own start, whatever the requested resolution
+    public List<Bucket> find(long id, Resolution resolution, Date from, Date to) {
+        return jdbcTemplate.query("""
+                        select date_trunc(%s, bucket_start) b, sum(clicks) from url_click_bucket
+                        where url_id = ? and bucket_start >= ? and bucket_start < ?
+                        group by b order by b""".formatted(resolution.sqlUnit),
+                (rs, n) -> new Bucket(id, resolution, rs.getTimestamp(1).getTime(), rs.getLong(2)),
+                id, new Timestamp(from.getTime()), new Timestamp(to.getTime()));
+    }
+
+    // rolls `from` rows that started before `before` up into `to` rows
+    @Transactional
+    public int downsample(Resolution from, Resolution to, Date before) {
+        var cutoff = new Timestamp(before.getTime());
+
+        jdbcTemplate.update("""
+                        insert into url_click_bucket (url_id, resolution, bucket_start, clicks)
+                        select url_id, ?, date_trunc(%1$s, bucket_start), sum(clicks) from url_click_bucket
+                        where resolution = ? and bucket_start < ?
+                        group by url_id, date_trunc(%1$s, bucket_start)""".formatted(to.sqlUnit),
+                to.code, from.code, cutoff);
+
+        return jdbcTemplate.update("delete from url_click_bucket where resolution = ? and bucket_start < ?",
+                from.code, cutoff);
+    }
+
+    public int deleteOlderThan(Resolution resolution, Date before) {
+        return jdbcTemplate.update("delete from url_click_bucket where resolution = ? and bucket_start < ?",
+                resolution.code, new Timestamp(before.getTime()));
+    }
+
+    public record Bucket(long id, Resolution resolution, long start, long clicks) {
+    }
+
+    public enum Resolution {
+        MINUTE("M", "MINUTE"), HOUR("H", "HOUR"), DAY("D", "DAY");
+
+        private final String code;
+        private final String sqlUnit; // H2 only takes the unit as a keyword, not as a parameter
+
+        Resolution(String code, String sqlUnit) {
+            this.code = code;
+            this.sqlUnit = sqlUnit;
+        }
+    }
+}
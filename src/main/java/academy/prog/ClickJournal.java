@@ -0,0 +1,217 @@
+package academy.prog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Append-only, memory-mapped click log: a ClickQueue that survives a crash.
+
+    Records are 16 bytes (id, timestamp) in fixed-size segment files
+    clicks-<index>.journal. A writer reserves a global position with one
+    atomic increment and publishes the record by writing its non-zero
+    timestamp last, so zero means "not written (yet)". A position whose
+    segment could not be mapped is remembered as abandoned and skipped by
+    drain(); after a restart it is a zero slot, which replay skips anyway.
+
+    The checkpoint file holds the position up to which clicks are known
+    to be in the database; segments below it are deleted. Everything after
+    it is replayed on startup, so a click may be counted twice but never lost.
+ */
+
+public class ClickJournal implements ClickQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(ClickJournal.class);
+    private static final int RECORD_SIZE = 16;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long recordsPerSegment;
+    private final ConcurrentHashMap<Long, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+    private final Set<Long> abandoned = ConcurrentHashMap.newKeySet(); // reserved, never to be written
+    private final AtomicLong writePosition = new AtomicLong();
+    private volatile long readPosition; // written by the consumer only
+    private volatile long checkpoint;
+
+    public ClickJournal(Path dir, long segmentSize) {
+        this.dir = dir;
+        this.segmentSize = (int) (Math.min(segmentSize, Integer.MAX_VALUE) / RECORD_SIZE * RECORD_SIZE);
+        this.recordsPerSegment = this.segmentSize / RECORD_SIZE;
+    }
+
+    /*
+        Hands every click after the last checkpoint to the consumer and
+        positions the journal at the start of a fresh segment.
+        Returns that position: once the replayed clicks are in the
+        database, checkpoint() it.
+     */
+    public long open(ClickConsumer consumer) throws IOException {
+        Files.createDirectories(dir);
+        checkpoint = readCheckpoint();
+
+        long replayed = 0;
+        long nextSegment = checkpoint / recordsPerSegment;
+        for (long index : existingSegments()) {
+            if (index < checkpoint / recordsPerSegment)
+                continue;
+
+            var buffer = map(index, false);
+            long first = index == checkpoint / recordsPerSegment ? checkpoint % recordsPerSegment : 0;
+            long last = buffer.capacity() / RECORD_SIZE;
+            for (long slot = first; slot < last; slot++) {
+                int offset = (int) (slot * RECORD_SIZE);
+                long timestamp = buffer.getLong(offset + 8);
+                // gaps are slots reserved by writers that never got to finish
+                if (timestamp != 0) {
+                    consumer.accept(buffer.getLong(offset), timestamp);
+                    replayed++;
+                }
+            }
+            nextSegment = index + 1;
+        }
+
+        long start = nextSegment * recordsPerSegment;
+        writePosition.set(start);
+        readPosition = start;
+
+        LOG.info("Replayed {} clicks from the journal in {}", replayed, dir);
+        return start;
+    }
+
+    @Override
+    public boolean offer(long id, long timestamp) {
+        long position = writePosition.getAndIncrement();
+
+        try {
+            var buffer = segment(position / recordsPerSegment);
+            int offset = (int) (position % recordsPerSegment * RECORD_SIZE);
+
+            buffer.putLong(offset, id);
+            LONGS.setRelease(buffer, offset + 8, timestamp);
+            return true;
+        } catch (UncheckedIOException ex) {
+            LOG.error("Could not append to the click journal", ex);
+            abandoned.add(position);
+            return false;
+        }
+    }
+
+    @Override
+    public int drain(ClickConsumer consumer, int limit) {
+        long position = readPosition;
+        long end = Math.min(writePosition.get(), position + limit);
+        int count = 0;
+
+        while (position < end) {
+            if (abandoned.remove(position)) {
+                readPosition = ++position;
+                continue;
+            }
+
+            var buffer = segment(position / recordsPerSegment);
+            int offset = (int) (position % recordsPerSegment * RECORD_SIZE);
+
+            long timestamp = (long) LONGS.getAcquire(buffer, offset + 8);
+            if (timestamp == 0)
+                break; // reserved, not written yet
+
+            consumer.accept(buffer.getLong(offset), timestamp);
+            position++;
+            count++;
+            readPosition = position;
+        }
+
+        return count;
+    }
+
+    @Override
+    public long size() {
+        return Math.max(0, writePosition.get() - readPosition);
+    }
+
+    // everything before this position has been handed to the consumer
+    public long consumed() {
+        return readPosition;
+    }
+
+    // clicks before position are in the database: persist that and drop their segments
+    public synchronized void checkpoint(long position) throws IOException {
+        if (position <= checkpoint)
+            return;
+
+        var tmp = dir.resolve(CHECKPOINT + ".tmp");
+        Files.writeString(tmp, Long.toString(position));
+        Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = position;
+
+        for (long index : existingSegments()) {
+            if ((index + 1) * recordsPerSegment <= position) {
+                segments.remove(index);
+                Files.deleteIfExists(segmentPath(index));
+            }
+        }
+    }
+
+    // msync: page cache survives a process crash, this bounds the loss on a power failure
+    public void sync() {
+        segments.values().forEach(MappedByteBuffer::force);
+    }
+
+    private MappedByteBuffer segment(long index) {
+        var buffer = segments.get(index);
+        return buffer != null ? buffer : segments.computeIfAbsent(index, x -> map(x, true));
+    }
+
+    private MappedByteBuffer map(long index, boolean write) {
+        try (var channel = write
+                ? FileChannel.open(segmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+            var buffer = channel.map(write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, write ? segmentSize : Math.min(channel.size(), segmentSize));
+            buffer.order(ByteOrder.LITTLE_ENDIAN); // same as LONGS
+
+            return buffer;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        var file = dir.resolve(CHECKPOINT);
+        return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0;
+    }
+
+    private List<Long> existingSegments() throws IOException {
+        var result = new ArrayList<Long>();
+
+        try (var files = Files.list(dir)) {
+            files.map(x -> x.getFileName().toString())
+                    .filter(x -> x.startsWith("clicks-") && x.endsWith(".journal"))
+                    .forEach(x -> result.add(Long.parseLong(x.substring("clicks-".length(), x.length() - ".journal".length()))));
+        }
+        result.sort(null);
+
+        return result;
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("clicks-%020d.journal", index));
+    }
+}
@@ -0,0 +1,150 @@
+package academy.prog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+    Decouples redirects from statistics: the redirect path only puts
+    (id, timestamp) into a ring buffer, one consumer thread drains it
+    in batches into RedirectCounter.
+
+    When the buffer is full, DROP loses the click (happyurl.clicks.dropped),
+    BLOCK makes the redirect wait for free space.
+
+    With happyurl.clicks.journal.enabled the ring buffer is replaced by a
+    ClickJournal on local disk: clicks not yet in the database when the node
+    dies are replayed on the next start.
+ */
+
+@Component
+public class ClickPipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(ClickPipeline.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public enum Backpressure { DROP, BLOCK }
+
+    private final ClickQueue queue;
+    private final ClickJournal journal; // null unless journaling
+    private final Backpressure backpressure;
+    private final int batchSize;
+    private final RedirectCounter redirectCounter;
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    public ClickPipeline(@Value("${happyurl.clicks.queue-capacity:65536}") int capacity,
+                         @Value("${happyurl.clicks.backpressure:DROP}") Backpressure backpressure,
+                         @Value("${happyurl.clicks.batch-size:1024}") int batchSize,
+                         @Value("${happyurl.clicks.journal.enabled:false}") boolean journaling,
+                         @Value("${happyurl.clicks.journal.dir:journal}") Path journalDir,
+                         @Value("${happyurl.clicks.journal.segment-size:64MB}") DataSize segmentSize,
+                         RedirectCounter redirectCounter,
+                         MeterRegistry meterRegistry) {
+        this.journal = journaling ? new ClickJournal(journalDir, segmentSize.toBytes()) : null;
+        this.queue = journaling ? journal : new ClickRingBuffer(capacity);
+        this.backpressure = backpressure;
+        this.batchSize = batchSize;
+        this.redirectCounter = redirectCounter;
+        this.consumer = new Thread(this::consume, "click-consumer");
+        this.consumer.setDaemon(true);
+
+        Gauge.builder("happyurl.clicks.queue.depth", queue, ClickQueue::size)
+                .description("Clicks waiting for the consumer thread")
+                .register(meterRegistry);
+        FunctionCounter.builder("happyurl.clicks.offered", offered, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("happyurl.clicks.dropped", dropped, LongAdder::sum)
+                .description("Clicks lost because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (journal != null) {
+            long replayed = journal.open(redirectCounter::record);
+            if (redirectCounter.flushPending())
+                journal.checkpoint(replayed);
+        }
+
+        consumer.start();
+    }
+
+    public void record(long id, long timestamp) {
+        offered.increment();
+        if (queue.offer(id, timestamp))
+            return;
+
+        if (backpressure == Backpressure.DROP) {
+            dropped.increment();
+            return;
+        }
+
+        while (!queue.offer(id, timestamp)) {
+            Thread.onSpinWait();
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 100);
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                if (queue.drain(redirectCounter::record, batchSize) == 0)
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } catch (RuntimeException ex) {
+                LOG.error("Click consumer failed, continuing", ex);
+            }
+        }
+    }
+
+    // position read before the flush: all clicks before it are in the database afterwards
+    @Scheduled(fixedDelayString = "${happyurl.counter.flush-interval-ms:1000}")
+    public void checkpoint() throws IOException {
+        if (journal == null)
+            return;
+
+        journal.sync();
+
+        long consumed = journal.consumed();
+        if (redirectCounter.flushPending())
+            journal.checkpoint(consumed);
+    }
+
+    // runs before RedirectCounter's final flush, as that bean is our dependency
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        consumer.join(TimeUnit.SECONDS.toMillis(5));
+        if (consumer.isAlive()) {
+            consumer.interrupt();
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        if (consumer.isAlive()) {
+            // a second reader would break the single-consumer queue; the journal replays what is left
+            LOG.warn("Click consumer did not stop, {} clicks not handed over", queue.size());
+            return;
+        }
+
+        while (queue.drain(redirectCounter::record, batchSize) > 0) {
+            // hand everything over
+        }
+
+        checkpoint();
+    }
+}
@@ -0,0 +1,19 @@
+package academy.prog;
+
+// where redirects leave their clicks for the consumer thread of ClickPipeline
+
+public interface ClickQueue {
+
+    // false if the click could not be taken
+    boolean offer(long id, long timestamp);
+
+    // single consumer only, returns the number of clicks handed to the consumer
+    int drain(ClickConsumer consumer, int limit);
+
+    long size();
+
+    @FunctionalInterface
+    interface ClickConsumer {
+        void accept(long id, long timestamp);
+    }
+}
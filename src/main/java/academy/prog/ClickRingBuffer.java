@@ -0,0 +1,85 @@
+package academy.prog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Bounded lock-free multi-producer / single-consumer queue of (id, timestamp)
+    pairs (D. Vyukov's sequence-per-slot design). Slots are preallocated,
+    offering a click does not allocate.
+ */
+
+public class ClickRingBuffer implements ClickQueue {
+    private final int mask;
+    private final long[] ids;
+    private final long[] timestamps;
+    private final AtomicLongArray sequences; // publishes the slot to the consumer and back
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // written by the consumer only
+
+    public ClickRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+
+        mask = capacity - 1;
+        ids = new long[capacity];
+        timestamps = new long[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+    }
+
+    // false if the buffer is full
+    @Override
+    public boolean offer(long id, long timestamp) {
+        long pos = tail.get();
+
+        while (true) {
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - pos;
+
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    ids[slot] = id;
+                    timestamps[slot] = timestamp;
+                    sequences.lazySet(slot, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    @Override
+    public int drain(ClickConsumer consumer, int limit) {
+        long pos = head;
+        int count = 0;
+
+        while (count < limit) {
+            int slot = (int) pos & mask;
+            if (sequences.get(slot) != pos + 1)
+                break;
+
+            consumer.accept(ids[slot], timestamps[slot]);
+            sequences.lazySet(slot, pos + mask + 1);
+            pos++;
+            count++;
+        }
+
+        head = pos;
+        return count;
+    }
+
+    @Override
+    public long size() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
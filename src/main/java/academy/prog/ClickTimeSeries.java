@@ -0,0 +1,110 @@
+package academy.prog;
+
+import academy.prog.ClickBucketRepository.Bucket;
+import academy.prog.ClickBucketRepository.Resolution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Per-link redirects per minute. Minutes are summed up in memory
+    (every click RedirectCounter records, at its own timestamp) and appended to url_click_bucket
+    once they are over. Old minutes are rolled up into hours, old hours
+    into days, and days beyond their retention are dropped.
+ */
+
+@Component
+public class ClickTimeSeries {
+    private static final Logger LOG = LoggerFactory.getLogger(ClickTimeSeries.class);
+    private static final long MINUTE = 60_000;
+
+    private final Map<BucketKey, long[]> open = new HashMap<>();
+    private final ClickBucketRepository clickBucketRepository;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+    private final Duration dayRetention;
+
+    public ClickTimeSeries(ClickBucketRepository clickBucketRepository,
+                           @Value("${happyurl.timeseries.minute-retention:2d}") Duration minuteRetention,
+                           @Value("${happyurl.timeseries.hour-retention:90d}") Duration hourRetention,
+                           @Value("${happyurl.timeseries.day-retention:3650d}") Duration dayRetention) {
+        this.clickBucketRepository = clickBucketRepository;
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+        this.dayRetention = dayRetention;
+    }
+
+    public synchronized void add(long id, long timestamp, long clicks) {
+        open.computeIfAbsent(new BucketKey(id, timestamp - timestamp % MINUTE), x -> new long[1])[0] += clicks;
+    }
+
+    @Scheduled(fixedDelayString = "${happyurl.timeseries.persist-interval-ms:10000}")
+    public void persistClosed() {
+        persist(System.currentTimeMillis() / MINUTE * MINUTE);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist(Long.MAX_VALUE);
+    }
+
+    @Scheduled(fixedDelayString = "${happyurl.timeseries.downsample-interval-ms:3600000}")
+    public void downsample() {
+        var now = new Date().toInstant();
+
+        try {
+            // cutoffs on unit boundaries so one bucket is never split between two runs
+            clickBucketRepository.downsample(Resolution.MINUTE, Resolution.HOUR,
+                    Date.from(now.minus(minuteRetention).truncatedTo(ChronoUnit.HOURS)));
+            clickBucketRepository.downsample(Resolution.HOUR, Resolution.DAY,
+                    Date.from(now.minus(hourRetention).truncatedTo(ChronoUnit.DAYS)));
+            clickBucketRepository.deleteOlderThan(Resolution.DAY,
+                    Date.from(now.minus(dayRetention).truncatedTo(ChronoUnit.DAYS)));
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not downsample redirect time series", ex);
+        }
+    }
+
+    public List<Bucket> find(long id, Resolution resolution, Date from, Date to) {
+        return clickBucketRepository.find(id, resolution, from, to);
+    }
+
+    private void persist(long before) {
+        var closed = new ArrayList<Bucket>();
+
+        synchronized (this) {
+            var it = open.entrySet().iterator();
+            while (it.hasNext()) {
+                var entry = it.next();
+                if (entry.getKey().start() < before) {
+                    closed.add(new Bucket(entry.getKey().id(), Resolution.MINUTE, entry.getKey().start(), entry.getValue()[0]));
+                    it.remove();
+                }
+            }
+        }
+
+        if (closed.isEmpty())
+            return;
+
+        try {
+            clickBucketRepository.append(closed);
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not persist {} redirect time series buckets, will retry", closed.size(), ex);
+            closed.forEach(x -> add(x.id(), x.start(), x.clicks()));
+        }
+    }
+
+    private record BucketKey(long id, long start) {
+    }
+}
@@ -0,0 +1,79 @@
+package academy.prog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Block id allocation: every node reserves happyurl.id.block-size ids
+    with one UPDATE on url_id_allocator and hands them out from memory.
+    Ids are unique across nodes but not ordered, gaps are normal.
+    A block is abandoned after happyurl.id.block-max-age, so every id below
+    a next_id read that long ago has been handed out (see IssuedIds).
+ */
+
+@Component
+public class IdAllocator {
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final int blockSize;
+    private final long maxAgeNanos;
+    private volatile Block block = new Block(0, 0, System.nanoTime());
+
+    public IdAllocator(UrlJdbcRepository urlJdbcRepository,
+                       @Value("${happyurl.id.block-size:100}") int blockSize,
+                       @Value("${happyurl.id.block-max-age:5s}") Duration blockMaxAge) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.blockSize = blockSize;
+        this.maxAgeNanos = blockMaxAge.toNanos();
+    }
+
+    public long next() {
+        while (true) {
+            var current = block;
+            if (System.nanoTime() - current.expires < 0) {
+                long id = current.next.getAndIncrement();
+                if (id < current.end)
+                    return id;
+            }
+
+            refill(current);
+        }
+    }
+
+    public long[] next(int count) {
+        var ids = new long[count];
+
+        if (count >= blockSize) {
+            // big batches get a dedicated range instead of draining the shared block
+            long first = urlJdbcRepository.allocateIds(count);
+            for (int i = 0; i < count; i++)
+                ids[i] = first + i;
+        } else {
+            for (int i = 0; i < count; i++)
+                ids[i] = next();
+        }
+
+        return ids;
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block == exhausted) {
+            long first = urlJdbcRepository.allocateIds(blockSize);
+            block = new Block(first, first + blockSize, System.nanoTime() + maxAgeNanos);
+        }
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long end;
+        private final long expires; // System.nanoTime()
+
+        Block(long first, long end, long expires) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package academy.prog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+    Every id handed out by this node or found in url_record, so that random /
+    scanned ids can be rejected without a query.
+    Only ids below a high-water mark - a url_id_allocator.next_id such that
+    every id below it is in url_record and in the filter - are rejected; newer ids, e.g. links shortened on other nodes, fall through
+    to the cache and the database until LinkWarmup raises the mark.
+    Until complete(), every id might exist.
+ */
+
+@Component
+public class IssuedIds {
+    private final IdBloomFilter filter;
+    private volatile long highWater;
+    private volatile boolean complete;
+
+    public IssuedIds(@Value("${happyurl.bloom.expected-ids:1000000}") long expectedIds,
+                     @Value("${happyurl.bloom.fpp:0.01}") double fpp) {
+        this.filter = new IdBloomFilter(expectedIds, fpp);
+    }
+
+    public void add(long id) {
+        filter.put(id);
+    }
+
+    // every id below highWater is in url_record and has been added
+    public void complete(long highWater) {
+        raise(highWater);
+        complete = true;
+    }
+
+    public synchronized void raise(long highWater) {
+        this.highWater = Math.max(this.highWater, highWater);
+    }
+
+    public long highWater() {
+        return highWater;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean mightExist(long id) {
+        return !complete || id >= highWater || filter.mightContain(id);
+    }
+}
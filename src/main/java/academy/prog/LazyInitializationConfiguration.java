@@ -0,0 +1,23 @@
+package academy.prog;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    With spring.main.lazy-initialization (the fast-startup profile) our own
+    beans are still created at startup: they are the redirect path, own
+    @Scheduled flushes, background threads and SmartInitializingSingleton
+    warm-ups, none of which may wait for a first request.
+    Only framework beans nothing here depends on are deferred.
+ */
+
+@Configuration(proxyBeanMethods = false)
+public class LazyInitializationConfiguration {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerApplicationBeans() {
+        return (name, definition, type) ->
+                type != null && type.getPackageName().equals(HappyUrlApplication.class.getPackageName());
+    }
+}
@@ -0,0 +1,309 @@
+package academy.prog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Startup warm-up of the redirect path, off the startup thread.
+
+    hot:  the happyurl.warmup.hot-links most redirected (then most recently
+          used) links into UrlCache, read along url_record_hotness_idx so it
+          doesn't grow with the table; after that the node reports ready
+    tail: one pass over url_record in up to happyurl.warmup.threads parallel
+          keyset partitions - every id into the Bloom filter, URLs into the
+          off-heap cache while it has room (ids only once it is full)
+
+    Until the Bloom filter is complete, IssuedIds lets unknown ids through
+    to the cache and the database; afterwards only ids above its high-water
+    mark, which refresh() raises as other nodes shorten links:
+
+    a url_id_allocator.next_id read at T covers every id below it once no
+    id block reserved before T can still be handed out and committed, i.e.
+    usually from T + 2 * happyurl.id.block-max-age on. The tail pass starts
+    no earlier than that after the first read, and each refresh raises the
+    mark to the newest read that old.
+
+    Nothing bounds a commit, though: a slow connection, a dedicated batch
+    range or a memory-first write-behind can land below the mark. So each
+    refresh rescans every id above the next_id read happyurl.bloom.rescan-window
+    ago, not just the ones above the mark; a link committed later than that
+    stays unknown to this node until it restarts.
+
+    Readiness is this health indicator,
+    part of the readiness group (/actuator/health/readiness).
+    With happyurl.warmup.background=false startup waits for both phases.
+
+    Memory-first nodes (MemoryUrlStore) hold every link already: no hot
+    phase, and the tail pass reads ids only.
+ */
+
+@Component
+public class LinkWarmup implements SmartInitializingSingleton, HealthIndicator {
+    private static final Logger LOG = LoggerFactory.getLogger(LinkWarmup.class);
+
+    public enum Phase { HOT, TAIL, DONE, FAILED }
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final UrlCache urlCache;
+    private final OffHeapUrlCache offHeapUrlCache;
+    private final IssuedIds issuedIds;
+    private final RedirectTargets redirectTargets;
+    private final boolean background;
+    private final boolean memoryFirst;
+    private final int hotLinks;
+    private final int threads;
+    private final int chunkSize;
+    private final long settleMillis;
+    private final long rescanMillis;
+    private final ArrayDeque<Mark> marks = new ArrayDeque<>(); // oldest first, guarded by this
+    private final LongAdder ids = new LongAdder();
+    private final LongAdder hot = new LongAdder();
+    private final LongAdder tail = new LongAdder();
+    private volatile Phase phase = Phase.HOT;
+    private volatile RuntimeException failure;
+    private volatile boolean idsOnly;
+    private volatile long started;
+    private volatile long readyAt;
+    private volatile long doneAt;
+
+    public LinkWarmup(UrlJdbcRepository urlJdbcRepository, UrlCache urlCache, OffHeapUrlCache offHeapUrlCache,
+                      IssuedIds issuedIds, RedirectTargets redirectTargets, MemoryUrlStore memoryUrlStore,
+                      @Value("${happyurl.warmup.background:true}") boolean background,
+                      @Value("${happyurl.warmup.hot-links:10000}") int hotLinks,
+                      @Value("${happyurl.warmup.threads:4}") int threads,
+                      @Value("${happyurl.warmup.chunk-size:10000}") int chunkSize,
+                      @Value("${happyurl.id.block-max-age:5s}") Duration blockMaxAge,
+                      @Value("${happyurl.bloom.rescan-window:10m}") Duration rescanWindow) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.urlCache = urlCache;
+        this.offHeapUrlCache = offHeapUrlCache;
+        this.issuedIds = issuedIds;
+        this.redirectTargets = redirectTargets;
+        this.background = background;
+        this.memoryFirst = memoryUrlStore.enabled();
+        this.idsOnly = memoryFirst;
+        this.hotLinks = hotLinks;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = chunkSize;
+        this.settleMillis = 2 * blockMaxAge.toMillis();
+        this.rescanMillis = Math.max(settleMillis, rescanWindow.toMillis());
+    }
+
+    // runs once the schema exists, before the web server accepts requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        started = System.currentTimeMillis();
+
+        var warmup = CompletableFuture.runAsync(this::run, task -> thread("link-warmup", task).start());
+        if (!background)
+            warmup.join();
+    }
+
+    @Override
+    public Health health() {
+        var builder = readyAt > 0 ? Health.up() : failure != null ? Health.down(failure) : Health.outOfService();
+
+        builder.withDetail("phase", phase)
+                .withDetail("ids", ids.sum())
+                .withDetail("hotLinks", hot.sum())
+                .withDetail("tailLinks", tail.sum())
+                .withDetail("highWater", issuedIds.highWater());
+        if (readyAt > 0)
+            builder.withDetail("readyAfterMs", readyAt - started);
+        if (doneAt > 0)
+            builder.withDetail("doneAfterMs", doneAt - started);
+        if (failure != null && readyAt > 0)
+            builder.withDetail("error", failure.toString());
+
+        return builder.build();
+    }
+
+    private void run() {
+        try {
+            long markedAt = System.currentTimeMillis();
+            long mark = urlJdbcRepository.readNextId();
+
+            loadHot();
+            readyAt = System.currentTimeMillis();
+            phase = Phase.TAIL;
+            LOG.info("Cached {} hot links in {} ms, ready", hot.sum(), readyAt - started);
+
+            Thread.sleep(Math.max(0, markedAt + settleMillis - System.currentTimeMillis()));
+            var range = urlJdbcRepository.findIdRange();
+            if (range != null)
+                inPartitions(range, this::loadTail);
+            issuedIds.complete(mark);
+            synchronized (this) {
+                marks.add(new Mark(markedAt, mark));
+            }
+            doneAt = System.currentTimeMillis();
+            phase = Phase.DONE;
+            LOG.info("Loaded {} ids and cached {} links off-heap in {} ms", ids.sum(), tail.sum(), doneAt - readyAt);
+        } catch (RuntimeException ex) {
+            // a Bloom filter left incomplete stays pass-through, lookups keep going to the database
+            failure = ex;
+            phase = Phase.FAILED;
+            LOG.error("Link warm-up failed", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure = new IllegalStateException("Interrupted", ex);
+            phase = Phase.FAILED;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${happyurl.bloom.refresh-interval-ms:10000}")
+    public synchronized void refresh() {
+        if (!issuedIds.isComplete())
+            return;
+
+        try {
+            long now = System.currentTimeMillis();
+            marks.add(new Mark(now, urlJdbcRepository.readNextId()));
+            // the rescan starts at the newest mark read at least a rescan window ago
+            var floor = marks.pollFirst();
+            while (!marks.isEmpty() && marks.peekFirst().at() <= now - rescanMillis)
+                floor = marks.pollFirst();
+            marks.addFirst(floor);
+
+            // links committed by now, late ones below the mark included
+            for (long after = floor.nextId() - 1; ; ) {
+                var chunk = urlJdbcRepository.findIds(after, Long.MAX_VALUE, chunkSize);
+                chunk.forEach(issuedIds::add);
+                if (chunk.size() < chunkSize)
+                    break;
+                after = chunk.get(chunk.size() - 1);
+            }
+
+            for (var mark : marks) {
+                if (mark.at() <= now - settleMillis)
+                    issuedIds.raise(mark.nextId());
+            }
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not refresh the issued ids", ex);
+        }
+    }
+
+    private void loadHot() {
+        if (hotLinks <= 0 || memoryFirst)
+            return;
+
+        for (var url : urlJdbcRepository.findHottest(hotLinks)) {
+            var target = target(url.url(), url.policy());
+            if (target != null) {
+                urlCache.put(url.id(), target);
+                hot.increment();
+            }
+        }
+    }
+
+    // every id of (after, last] into the Bloom filter, URLs off-heap until nothing has to be evicted for them
+    private Void loadTail(long after, long last) {
+        while (true) {
+            int count;
+            if (idsOnly) {
+                var chunk = urlJdbcRepository.findIds(after, last, chunkSize);
+                chunk.forEach(issuedIds::add);
+                count = chunk.size();
+                if (count > 0)
+                    after = chunk.get(count - 1);
+            } else {
+                var chunk = urlJdbcRepository.findUrls(after, last, chunkSize);
+                chunk.forEach(this::loadTail);
+                count = chunk.size();
+                if (count > 0)
+                    after = chunk.get(count - 1).id();
+            }
+            ids.add(count);
+
+            if (count < chunkSize)
+                return null;
+        }
+    }
+
+    private void loadTail(UrlJdbcRepository.StoredUrl url) {
+        issuedIds.add(url.id());
+        if (idsOnly)
+            return;
+
+        // hot links are cached already
+        var target = target(url.url(), url.policy());
+        if (target == null)
+            return;
+        if (offHeapUrlCache.offer(url.id(), target.location(), url.policy()))
+            tail.increment();
+        else
+            idsOnly = true; // off-heap cache full
+    }
+
+    private record Mark(long at, long nextId) {
+    }
+
+    private interface PartitionTask<T> {
+        T load(long after, long last);
+    }
+
+    // (after, last] ranges of about the same width, one thread each
+    private <T> List<T> inPartitions(UrlJdbcRepository.IdRange range, PartitionTask<T> task) {
+        long span = range.max() - range.min() + 1;
+        int partitions = (int) Math.max(1, Math.min(threads, span / chunkSize));
+        long step = span / partitions;
+
+        var counter = new AtomicInteger();
+        var pool = Executors.newFixedThreadPool(partitions, x -> thread("link-warmup-" + counter.incrementAndGet(), x));
+        try {
+            var futures = new ArrayList<Future<T>>(partitions);
+            for (int i = 0; i < partitions; i++) {
+                long after = range.min() - 1 + step * i;
+                long last = i == partitions - 1 ? range.max() : after + step;
+                futures.add(pool.submit((Callable<T>) () -> task.load(after, last)));
+            }
+
+            var result = new ArrayList<T>(partitions);
+            for (var future : futures)
+                result.add(future.get());
+
+            return result;
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // null for rows shortened before validation existed that don't pass it
+    private RedirectTarget target(String url, RedirectPolicy policy) {
+        try {
+            return redirectTargets.of(RedirectLocation.of(url), policy);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static Thread thread(String name, Runnable task) {
+        var thread = new Thread(task, name);
+        thread.setDaemon(true);
+
+        return thread;
+    }
+}
@@ -0,0 +1,74 @@
+package academy.prog;
+
+/*
+    long -> long hash map on two primitive arrays, open addressing with
+    linear probing, doubled when 3/4 full. Key 0 marks a free slot.
+    Not thread-safe.
+ */
+
+public class LongLongMap {
+    private static final double MAX_FILL = 0.75;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public LongLongMap(int expectedSize) {
+        int slots = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16, (long) (expectedSize / MAX_FILL))) * 2 - 1);
+
+        keys = new long[slots];
+        values = new long[slots];
+        mask = slots - 1;
+    }
+
+    // 0 when absent
+    public long get(long key) {
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key)
+                return values[slot];
+            if (keys[slot] == 0)
+                return 0;
+        }
+    }
+
+    public void put(long key, long value) {
+        if (key == 0)
+            throw new IllegalArgumentException("key 0 is reserved");
+        if (size >= keys.length * MAX_FILL)
+            grow();
+
+        int slot = slotOf(key);
+        while (keys[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        if (keys[slot] == 0)
+            size++;
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0)
+                put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private int slotOf(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key >>> 32) & mask;
+    }
+}
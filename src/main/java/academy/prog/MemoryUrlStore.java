@@ -0,0 +1,276 @@
+package academy.prog;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+    Memory-first mode (happyurl.memory.enabled): every link is kept in an
+    OffHeapUrlTable that never evicts, loaded once at startup, so redirects
+    touch neither the cache nor the database.
+
+    A shorten is deduplicated against an in-memory digest -> id map, applied
+    to the table, appended to the UrlJournal and acknowledged; url_record gets
+    it asynchronously (write-behind). Periodic snapshots bound the log that
+    has to be replayed on startup.
+
+    Startup: the snapshot, or url_record when there is none or it holds more
+    links than the snapshot, then the log. Logged links are written to
+    url_record once more, the upsert makes that a no-op for those already there.
+
+    url_record stays the system of record for statistics and other tools,
+    but this node has to be its only writer of links: a URL shortened
+    elsewhere is not in the digest map and would get a second id here.
+ */
+
+@Component
+public class MemoryUrlStore implements SmartInitializingSingleton {
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryUrlStore.class);
+    private static final RedirectPolicy[] POLICIES = RedirectPolicy.values();
+
+    private final OffHeapUrlTable table; // null unless enabled
+    private final UrlJournal journal;
+    private final LongLongMap digests; // first 8 digest bytes -> id, guarded by this
+    private final LinkedBlockingQueue<UrlJdbcRepository.NewUrl> pending = new LinkedBlockingQueue<>();
+    private final Object flushLock = new Object();
+    private final int batchSize;
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final IdAllocator idAllocator;
+    private final RedirectTargets redirectTargets;
+
+    public MemoryUrlStore(@Value("${happyurl.memory.enabled:false}") boolean enabled,
+                          @Value("${happyurl.memory.max-entries:4000000}") int maxEntries,
+                          @Value("${happyurl.memory.max-bytes:512MB}") DataSize maxBytes,
+                          @Value("${happyurl.memory.dir:memory}") Path dir,
+                          @Value("${happyurl.memory.fsync:true}") boolean fsync,
+                          @Value("${happyurl.batch.size:1000}") int batchSize,
+                          UrlJdbcRepository urlJdbcRepository, IdAllocator idAllocator,
+                          RedirectTargets redirectTargets, MeterRegistry meterRegistry) {
+        this.table = enabled ? new OffHeapUrlTable(maxEntries, Math.toIntExact(maxBytes.toBytes()), false) : null;
+        this.journal = enabled ? new UrlJournal(dir, fsync) : null;
+        this.digests = enabled ? new LongLongMap(1024) : null;
+        this.batchSize = batchSize;
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.idAllocator = idAllocator;
+        this.redirectTargets = redirectTargets;
+
+        if (table == null)
+            return;
+
+        Gauge.builder("happyurl.memory.links", table, OffHeapUrlTable::entries)
+                .register(meterRegistry);
+        Gauge.builder("happyurl.memory.bytes", table, OffHeapUrlTable::capacityBytes)
+                .description("Off-heap arena and index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("happyurl.memory.pending", pending, LinkedBlockingQueue::size)
+                .description("Links not yet written to url_record")
+                .register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return table != null;
+    }
+
+    // runs once the schema exists, before the web server accepts requests
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        if (table == null)
+            return;
+
+        long started = System.currentTimeMillis();
+        try {
+            long inDatabase = urlJdbcRepository.count();
+            long fromSnapshot = journal.hasSnapshot() ? journal.readSnapshot((id, url, tag) -> load(id, url, tag, null)) : 0;
+            // first start, or links added while memory-first was off
+            if (fromSnapshot < inDatabase)
+                urlJdbcRepository.forEachUrl(x -> load(x.id(), x.url(), x.policy().ordinal(), x.digest()));
+
+            journal.open((id, url, tag) -> {
+                var digest = load(id, url, tag, null);
+                pending.add(new UrlJdbcRepository.NewUrl(id, url, POLICIES[tag], digest));
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        LOG.info("Loaded {} links into memory ({} bytes) in {} ms",
+                table.entries(), table.liveBytes(), System.currentTimeMillis() - started);
+    }
+
+    public RedirectTarget get(long id) {
+        if (table == null)
+            return null;
+
+        var entry = table.get(id);
+        return entry == null ? null : redirectTargets.of(entry.value(), POLICIES[entry.tag()]);
+    }
+
+    public record NewLink(String url, RedirectPolicy policy, byte[] digest) {
+    }
+
+    // durable in the log when this returns, url_record follows within a flush interval
+    public long save(String url, RedirectPolicy policy, byte[] digest) {
+        return saveAll(List.of(new NewLink(url, policy, digest)))[0];
+    }
+
+    // ids in input order; the new links of the batch share a single log write and fsync
+    public synchronized long[] saveAll(List<NewLink> links) {
+        var ids = new long[links.size()];
+        var added = new LinkedHashMap<Long, UrlJdbcRepository.NewUrl>(); // digest key -> new link
+        for (int i = 0; i < ids.length; i++) {
+            var link = links.get(i);
+            long key = key(link.digest());
+
+            var sibling = added.get(key);
+            if (sibling != null) {
+                if (!sibling.url().equals(link.url()) || sibling.policy() != link.policy())
+                    throw new IllegalStateException("URL digest collision with record " + sibling.id());
+                ids[i] = sibling.id();
+                continue;
+            }
+
+            long existing = digests.get(key);
+            if (existing != 0) {
+                var entry = table.get(existing);
+                if (entry == null || !entry.value().equals(link.url()) || entry.tag() != link.policy().ordinal())
+                    throw new IllegalStateException("URL digest collision with record " + existing);
+                ids[i] = existing;
+                continue;
+            }
+
+            long id = idAllocator.next();
+            if (!table.put(id, link.url(), link.policy().ordinal()))
+                throw full();
+            added.put(key, new UrlJdbcRepository.NewUrl(id, link.url(), link.policy(), link.digest()));
+            ids[i] = id;
+        }
+        if (added.isEmpty())
+            return ids;
+
+        try {
+            journal.appendAll(added.values().stream()
+                    .map(x -> new UrlJournal.Entry(x.id(), x.url(), x.policy().ordinal()))
+                    .toList());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // the ids are never handed out
+        }
+
+        added.forEach((key, x) -> digests.put(key, x.id()));
+        pending.addAll(added.values());
+
+        return ids;
+    }
+
+    @Scheduled(fixedDelayString = "${happyurl.memory.flush-interval-ms:1000}")
+    public void flush() {
+        if (table != null)
+            writeBehind();
+    }
+
+    /*
+        The log is rotated first: every link in the segments below is in the
+        table and, after the write-behind, in url_record, so the snapshot can
+        replace them.
+     */
+    @Scheduled(initialDelayString = "${happyurl.memory.snapshot-interval-ms:600000}",
+            fixedDelayString = "${happyurl.memory.snapshot-interval-ms:600000}")
+    public void snapshot() throws IOException {
+        if (table == null)
+            return;
+
+        long started = System.currentTimeMillis();
+        long segment;
+        synchronized (this) {
+            segment = journal.rotate(); // no save() half done
+        }
+        if (!writeBehind())
+            return;
+
+        journal.writeSnapshot(table, segment);
+
+        LOG.info("Wrote a snapshot of {} links in {} ms", table.entries(), System.currentTimeMillis() - started);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (table == null)
+            return;
+
+        snapshot();
+        journal.close();
+    }
+
+    // true when everything queued so far is in url_record
+    private boolean writeBehind() {
+        synchronized (flushLock) {
+            var batch = new ArrayList<UrlJdbcRepository.NewUrl>(batchSize);
+            while (pending.drainTo(batch, batchSize) > 0) {
+                try {
+                    insert(batch);
+                } catch (DataAccessException ex) {
+                    LOG.warn("Could not write {} links to url_record, retrying", batch.size(), ex);
+                    pending.addAll(batch);
+                    return false;
+                }
+                batch.clear();
+            }
+
+            return true;
+        }
+    }
+
+    private void insert(List<UrlJdbcRepository.NewUrl> batch) {
+        try {
+            urlJdbcRepository.insertAll(batch);
+        } catch (DuplicateKeyException ex) {
+            // replayed from the log, or another writer - settle one link at a time
+            for (var url : batch) {
+                var stored = urlJdbcRepository.upsert(url.url(), url.policy(), url.digest(), url.id());
+                if (stored.id() != url.id())
+                    LOG.error("{} is {} in memory but {} in url_record, is another node shortening?",
+                            url.url(), url.id(), stored.id());
+            }
+        }
+    }
+
+    // under this monitor, during startup
+    private byte[] load(long id, String url, int tag, byte[] digest) {
+        if (!table.put(id, url, tag))
+            throw full();
+
+        if (digest == null)
+            digest = UrlDigest.of(POLICIES[tag].digestInput(url));
+        digests.put(key(digest), id);
+
+        return digest;
+    }
+
+    private IllegalStateException full() {
+        return new IllegalStateException("Memory-first table is full at " + table.entries() +
+                " links, raise happyurl.memory.max-entries / happyurl.memory.max-bytes");
+    }
+
+    private static long key(byte[] digest) {
+        long key = ByteBuffer.wrap(digest).getLong();
+        return key != 0 ? key : 1;
+    }
+}
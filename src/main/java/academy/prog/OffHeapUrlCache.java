@@ -0,0 +1,93 @@
+package academy.prog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Second level below the Caffeine cache in UrlCache: millions of
+    id -> RedirectTarget entries in an OffHeapUrlTable, so a link that
+    fell out of the on-heap cache still doesn't cost a query.
+    happyurl.offheap.max-bytes caps the URL bytes, the index takes
+    another 16 bytes per slot (max-entries / 0.75, rounded up to a power of two).
+ */
+
+@Component
+public class OffHeapUrlCache {
+    private static final RedirectPolicy[] POLICIES = RedirectPolicy.values();
+
+    private final OffHeapUrlTable table;
+    private final RedirectTargets redirectTargets;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OffHeapUrlCache(@Value("${happyurl.offheap.enabled:true}") boolean enabled,
+                           @Value("${happyurl.offheap.max-entries:500000}") int maxEntries,
+                           @Value("${happyurl.offheap.max-bytes:32MB}") DataSize maxBytes,
+                           RedirectTargets redirectTargets,
+                           MeterRegistry meterRegistry) {
+        this.table = enabled ? new OffHeapUrlTable(maxEntries, Math.toIntExact(maxBytes.toBytes()), true) : null;
+        this.redirectTargets = redirectTargets;
+
+        if (table == null)
+            return;
+
+        Gauge.builder("happyurl.offheap.bytes", table, OffHeapUrlTable::usedBytes)
+                .tag("kind", "used")
+                .description("Arena bytes up to the append position, garbage included")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("happyurl.offheap.bytes", table, OffHeapUrlTable::liveBytes)
+                .tag("kind", "live")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("happyurl.offheap.bytes", table, OffHeapUrlTable::capacityBytes)
+                .tag("kind", "capacity")
+                .description("Arena and index together")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("happyurl.offheap.entries", table, OffHeapUrlTable::entries)
+                .register(meterRegistry);
+        Gauge.builder("happyurl.offheap.fill", table, OffHeapUrlTable::fill)
+                .description("Used index slots / all slots")
+                .register(meterRegistry);
+        FunctionCounter.builder("happyurl.offheap.compactions", table, OffHeapUrlTable::compactions)
+                .register(meterRegistry);
+        FunctionCounter.builder("happyurl.offheap.gets", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("happyurl.offheap.gets", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public RedirectTarget get(long id) {
+        if (table == null)
+            return null;
+
+        var entry = table.get(id);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+
+        return redirectTargets.of(entry.value(), POLICIES[entry.tag()]);
+    }
+
+    public void put(long id, RedirectTarget target) {
+        if (table != null)
+            table.put(id, target.location(), target.policy().ordinal());
+    }
+
+    // false when disabled or full, for bulk loads that must not evict anything
+    public boolean offer(long id, String url, RedirectPolicy policy) {
+        return table != null && table.putIfRoom(id, url, policy.ordinal());
+    }
+}
@@ -0,0 +1,288 @@
+package academy.prog;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+    long id -> short string (UTF-8, up to 64 KB) plus a one-byte tag,
+    kept outside the Java heap: no boxed keys, no String objects, nothing for the GC to trace.
+
+    index: open addressing with linear probing, 16-byte slots (id, offset | length | tag),
+           id 0 marks a free slot
+    arena: the values, appended one after another
+
+    When the arena or the index is full, compaction rebuilds both:
+    entries read since the previous compaction survive (second chance),
+    the others are dropped, and the surviving values are packed to the start.
+    With evict = false every entry survives and only replaced values are reclaimed.
+
+    Reads are optimistic (StampedLock), writes and compaction are exclusive.
+ */
+
+public class OffHeapUrlTable {
+    private static final int SLOT_SIZE = 16;
+    private static final double MAX_FILL = 0.75;
+    private static final int MAX_LENGTH = 0xFFFF;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final ByteBuffer index;
+    private final ByteBuffer arena;
+    private final int slotMask;
+    private final int maxEntries;
+    private final boolean evict;
+    private final long[] referenced; // per slot, set by readers with an atomic OR
+    private final StampedLock lock = new StampedLock();
+
+    private int entries;
+    private int tail;
+    private long liveBytes;
+    private long compactions;
+
+    public OffHeapUrlTable(int maxEntries, int arenaBytes, boolean evict) {
+        int slots = Integer.highestOneBit((int) Math.min(1 << 30, (long) (maxEntries / MAX_FILL)) * 2 - 1);
+
+        this.index = ByteBuffer.allocateDirect(Math.multiplyExact(slots, SLOT_SIZE));
+        this.arena = ByteBuffer.allocateDirect(arenaBytes);
+        this.slotMask = slots - 1;
+        this.maxEntries = (int) (slots * MAX_FILL);
+        this.evict = evict;
+        this.referenced = new long[(slots + 63) >>> 6];
+    }
+
+    public record Entry(String value, int tag) {
+    }
+
+    public Entry get(long id) {
+        if (id == 0)
+            return null;
+
+        long stamp = lock.tryOptimisticRead();
+        int slot = find(id);
+        var value = slot < 0 ? null : read(slot);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                slot = find(id);
+                value = slot < 0 ? null : read(slot);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (value == null)
+            return null;
+
+        // a plain read first: hot entries are marked already, and an atomic OR on a shared word is not free
+        if ((referenced[slot >>> 6] & 1L << slot) == 0)
+            WORDS.getAndBitwiseOr(referenced, slot >>> 6, 1L << slot);
+
+        return new Entry(new String(value, 0, value.length - 1, StandardCharsets.UTF_8), value[value.length - 1]);
+    }
+
+    // false when the value doesn't fit even after a compaction
+    public boolean put(long id, String value, int tag) {
+        return put(id, value, tag, true);
+    }
+
+    // false instead of compacting, nothing already in the table is evicted
+    public boolean putIfRoom(long id, String value, int tag) {
+        return put(id, value, tag, false);
+    }
+
+    private boolean put(long id, String value, int tag, boolean compact) {
+        if (id == 0)
+            throw new IllegalArgumentException("id 0 is reserved");
+
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_LENGTH || bytes.length > arena.capacity())
+            return false;
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(id);
+            if (!fits(slot, bytes.length)) {
+                if (!compact)
+                    return false;
+
+                // if everything was read since the last compaction, the next one will free space
+                compact();
+                slot = find(id);
+                if (!fits(slot, bytes.length))
+                    return false;
+            }
+
+            if (slot >= 0) {
+                liveBytes -= length(slot); // the old value becomes garbage
+            } else {
+                slot = free(id);
+                entries++;
+            }
+
+            arena.put(tail, bytes);
+            index.putLong(slot * SLOT_SIZE, id);
+            index.putLong(slot * SLOT_SIZE + 8, (long) tail << 32 | (long) bytes.length << 8 | (tag & 0xFF));
+            tail += bytes.length;
+            liveBytes += bytes.length;
+
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // every entry under the read lock: writers wait, readers don't
+    public void forEach(Visitor visitor) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            var value = new byte[MAX_LENGTH];
+            for (int slot = 0; slot <= slotMask; slot++) {
+                long id = index.getLong(slot * SLOT_SIZE);
+                if (id == 0)
+                    continue;
+
+                long packed = index.getLong(slot * SLOT_SIZE + 8);
+                int length = (int) (packed >>> 8) & MAX_LENGTH;
+                arena.get((int) (packed >>> 32), value, 0, length);
+                visitor.visit(id, value, length, (int) packed & 0xFF);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public interface Visitor {
+        void visit(long id, byte[] value, int length, int tag) throws IOException;
+    }
+
+    public int entries() {
+        return entries;
+    }
+
+    public int slots() {
+        return slotMask + 1;
+    }
+
+    public double fill() {
+        return (double) entries / slots();
+    }
+
+    public long usedBytes() {
+        return tail;
+    }
+
+    public long liveBytes() {
+        return liveBytes;
+    }
+
+    public long capacityBytes() {
+        return arena.capacity() + (long) index.capacity();
+    }
+
+    public long compactions() {
+        return compactions;
+    }
+
+    /*
+        Slot of id, or -1. Under an optimistic read the buffers may change
+        underneath: the probe is bounded and offsets are checked, garbage
+        is discarded by the caller's validate().
+     */
+    private int find(long id) {
+        int slot = slotOf(id);
+        for (int probes = 0; probes <= slotMask; probes++) {
+            long key = index.getLong(slot * SLOT_SIZE);
+            if (key == id)
+                return slot;
+            if (key == 0)
+                return -1;
+
+            slot = (slot + 1) & slotMask;
+        }
+
+        return -1;
+    }
+
+    private int free(long id) {
+        int slot = slotOf(id);
+        while (index.getLong(slot * SLOT_SIZE) != 0)
+            slot = (slot + 1) & slotMask;
+
+        return slot;
+    }
+
+    // value bytes followed by the tag byte, null if the slot is inconsistent
+    private byte[] read(int slot) {
+        long packed = index.getLong(slot * SLOT_SIZE + 8);
+        int offset = (int) (packed >>> 32);
+        int length = (int) (packed >>> 8) & MAX_LENGTH;
+        if (offset < 0 || offset + length > arena.capacity())
+            return null;
+
+        var value = new byte[length + 1];
+        arena.get(offset, value, 0, length);
+        value[length] = (byte) packed;
+
+        return value;
+    }
+
+    private boolean fits(int slot, int length) {
+        return (slot >= 0 || entries < maxEntries) && tail + length <= arena.capacity();
+    }
+
+    private int length(int slot) {
+        return (int) (index.getLong(slot * SLOT_SIZE + 8) >>> 8) & MAX_LENGTH;
+    }
+
+    // under the write lock
+    private void compact() {
+        // survivors ordered by offset, so packing them never overwrites a value not yet moved
+        var survivors = new long[entries];
+        int count = 0;
+        for (int slot = 0; slot <= slotMask; slot++) {
+            if (index.getLong(slot * SLOT_SIZE) != 0 && (!evict || (referenced[slot >>> 6] & 1L << slot) != 0))
+                survivors[count++] = (index.getLong(slot * SLOT_SIZE + 8) >>> 32) << 32 | slot;
+        }
+        Arrays.sort(survivors, 0, count);
+
+        var ids = new long[count];
+        var packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            int slot = (int) survivors[i];
+            ids[i] = index.getLong(slot * SLOT_SIZE);
+            packed[i] = index.getLong(slot * SLOT_SIZE + 8);
+        }
+
+        for (int slot = 0; slot <= slotMask; slot++)
+            index.putLong(slot * SLOT_SIZE, 0);
+        Arrays.fill(referenced, 0);
+
+        var scratch = new byte[MAX_LENGTH];
+        tail = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = (int) (packed[i] >>> 32);
+            int length = (int) (packed[i] >>> 8) & MAX_LENGTH;
+            if (offset != tail) {
+                arena.get(offset, scratch, 0, length);
+                arena.put(tail, scratch, 0, length);
+            }
+
+            int slot = free(ids[i]);
+            index.putLong(slot * SLOT_SIZE, ids[i]);
+            index.putLong(slot * SLOT_SIZE + 8, (long) tail << 32 | (packed[i] & 0xFFFFFFFFL));
+            tail += length;
+        }
+
+        entries = count;
+        liveBytes = tail;
+        compactions++;
+    }
+
+    private int slotOf(long id) {
+        id *= 0x9E3779B97F4A7C15L; // Fibonacci hashing, the high bits are the well mixed ones
+        return (int) (id >>> 32) & slotMask;
+    }
+}
@@ -0,0 +1,129 @@
+package academy.prog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Write-behind redirect statistics: hits are accumulated in memory
+    and periodically added to url_record in one JDBC batch, so hot links
+    no longer serialize on a row lock per redirect.
+ */
+
+@Component
+public class RedirectCounter {
+    private static final Logger LOG = LoggerFactory.getLogger(RedirectCounter.class);
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final TopLinks topLinks;
+    private final ClickTimeSeries clickTimeSeries;
+
+    public RedirectCounter(UrlJdbcRepository urlJdbcRepository, TopLinks topLinks, ClickTimeSeries clickTimeSeries) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.topLinks = topLinks;
+        this.clickTimeSeries = clickTimeSeries;
+    }
+
+    // each click goes into the time series at its own minute, even when its flush is late or replayed
+    public void record(long id, long timestamp) {
+        add(id, 1, timestamp);
+        clickTimeSeries.add(id, timestamp, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${happyurl.counter.flush-interval-ms:1000}")
+    public void flush() {
+        flushPending();
+    }
+
+    // true once everything recorded before the call is in the database
+    public synchronized boolean flushPending() {
+        var deltas = new ArrayList<Delta>();
+
+        counters.forEach((id, counter) -> {
+            long delta = counter.drain();
+            if (delta > 0)
+                deltas.add(new Delta(id, delta, counter.lastAccess.get()));
+            else if (counter.retire()) // idle for a whole interval, a click racing with us goes to a fresh one
+                counters.remove(id, counter);
+        });
+
+        if (deltas.isEmpty())
+            return true;
+
+        try {
+            // memory-first links are clicked before the write-behind gets them into url_record
+            var missing = urlJdbcRepository.addRedirects(deltas);
+            if (!missing.isEmpty()) {
+                missing.forEach(x -> add(x.id(), x.count(), x.lastAccess()));
+                deltas.removeAll(missing);
+            }
+
+            deltas.forEach(x -> topLinks.offer(x.id(), x.count()));
+            return missing.isEmpty();
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not flush {} redirect counters, will retry", deltas.size(), ex);
+            deltas.forEach(x -> add(x.id(), x.count(), x.lastAccess()));
+            return false;
+        }
+    }
+
+    // between two flushes, so no delta is both in url_record and offered again
+    @Scheduled(fixedDelayString = "${happyurl.top.reconcile-interval-ms:600000}")
+    public synchronized void reconcileTopLinks() {
+        topLinks.reconcile();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public record Delta(long id, long count, long lastAccess) {
+    }
+
+    private void add(long id, long count, long timestamp) {
+        while (true) {
+            var counter = counters.computeIfAbsent(id, x -> new Counter());
+            if (counter.add(count, timestamp))
+                return;
+
+            counters.remove(id, counter); // retired under us, flush() is about to remove it anyway
+        }
+    }
+
+    // clicks not yet flushed, or RETIRED: add() and retire() can't both succeed
+    private static class Counter {
+        private static final long RETIRED = -1;
+
+        private final AtomicLong clicks = new AtomicLong();
+        private final AtomicLong lastAccess = new AtomicLong();
+
+        boolean add(long count, long timestamp) {
+            long current;
+            do {
+                current = clicks.get();
+                if (current == RETIRED)
+                    return false;
+            } while (!clicks.compareAndSet(current, current + count));
+
+            lastAccess.accumulateAndGet(timestamp, Math::max);
+            return true;
+        }
+
+        long drain() {
+            return clicks.getAndSet(0);
+        }
+
+        boolean retire() {
+            return clicks.compareAndSet(0, RETIRED);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package academy.prog;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/*
+    GET /my/{code} for cached links without DispatcherServlet: the code is
+    decoded in place from the request URI and the cached RedirectTarget is
+    written as is, nothing is allocated per request on our side.
+    Cache misses, unknown codes and other methods continue to UrlController.
+ */
+
+public class RedirectFilter implements Filter {
+    static final String PATH = "/my/";
+
+    private final UrlService urlService;
+    private final ShortCodec shortCodec;
+
+    public RedirectFilter(UrlService urlService, ShortCodec shortCodec) {
+        this.urlService = urlService;
+        this.shortCodec = shortCodec;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        var request = (HttpServletRequest) req;
+        var target = "GET".equals(request.getMethod()) ? cachedTarget(request) : null;
+        if (target == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        var response = (HttpServletResponse) res;
+        response.setStatus(target.policy().status());
+        response.setHeader(HttpHeaders.LOCATION, target.location());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, target.cacheControl());
+        response.setContentLength(0);
+    }
+
+    private RedirectTarget cachedTarget(HttpServletRequest request) {
+        var uri = request.getRequestURI();
+        int from = request.getContextPath().length() + PATH.length();
+        if (from >= uri.length() || uri.indexOf('/', from) >= 0)
+            return null;
+
+        long id = shortCodec.decode(uri, from, uri.length());
+
+        return id < 0 ? null : urlService.getCachedTarget(id);
+    }
+}
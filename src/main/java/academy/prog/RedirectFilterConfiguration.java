@@ -0,0 +1,23 @@
+package academy.prog;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// ahead of every other filter, fast-path redirects don't show up in http.server.requests
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RedirectFilterConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<RedirectFilter> redirectFilter(UrlService urlService, ShortCodec shortCodec) {
+        var registration = new FilterRegistrationBean<>(new RedirectFilter(urlService, shortCodec));
+        registration.addUrlPatterns(RedirectFilter.PATH + "*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        return registration;
+    }
+}
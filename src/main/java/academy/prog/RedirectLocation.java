@@ -0,0 +1,85 @@
+package academy.prog;
+
+import java.net.IDN;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/*
+    Validated Location header value, computed once when a URL is shortened.
+    Only absolute http(s) URLs with a host are accepted. Unicode host names
+    become punycode, characters outside US-ASCII and the ones a browser
+    escapes itself (space, {, |, }, ...) are percent-encoded, so the value
+    is written out as is - a Latin-1 compact String already holds exactly
+    the header bytes.
+ */
+
+public final class RedirectLocation {
+    public static final int MAX_LENGTH = 255; // url_record.url
+    private static final String ESCAPED = " \"<>\\^`{|}";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private RedirectLocation() {
+    }
+
+    // IllegalArgumentException for anything that can't be redirected to
+    public static String of(String url) {
+        URI uri;
+        try {
+            uri = new URI(escape(asciiHost(url)));
+        } catch (URISyntaxException ex) {
+            throw new IllegalArgumentException("Malformed URL: " + ex.getMessage());
+        }
+
+        var scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme))
+            throw new IllegalArgumentException("Not an http(s) URL: " + url);
+        if (uri.getHost() == null)
+            throw new IllegalArgumentException("URL without a host: " + url);
+
+        var location = uri.toASCIIString();
+        if (location.length() > MAX_LENGTH)
+            throw new IllegalArgumentException("URL longer than " + MAX_LENGTH + " characters");
+
+        return location;
+    }
+
+    // URI takes only ASCII host names: bücher.de -> xn--bcher-kva.de
+    private static String asciiHost(String url) {
+        int start = url.indexOf("://");
+        if (start < 0)
+            return url;
+        start += 3;
+
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0)
+            end++;
+        int hostStart = Math.max(start, url.lastIndexOf('@', end - 1) + 1);
+        int hostEnd = url.lastIndexOf(':', end - 1);
+        if (hostEnd < hostStart || url.startsWith("[", hostStart))
+            hostEnd = end;
+
+        var host = url.substring(hostStart, hostEnd);
+        if (host.chars().allMatch(c -> c < 0x80))
+            return url;
+
+        return url.substring(0, hostStart) + IDN.toASCII(host) + url.substring(hostEnd);
+    }
+
+    private static String escape(String url) {
+        StringBuilder result = null;
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (ESCAPED.indexOf(c) < 0) {
+                if (result != null)
+                    result.append(c);
+                continue;
+            }
+
+            if (result == null)
+                result = new StringBuilder(url.length() + 8).append(url, 0, i);
+            result.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+        }
+
+        return result == null ? url : result.toString();
+    }
+}
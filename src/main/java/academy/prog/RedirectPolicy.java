@@ -0,0 +1,47 @@
+package academy.prog;
+
+/*
+    How a short link answers.
+    TRACKED: 302 nobody may cache, every click reaches us and is counted.
+    PERMANENT (301) / PERMANENT_308: cacheable for happyurl.redirect.max-age,
+    repeat clicks from the same browser or CDN never arrive here,
+    so the redirect count of such a link is a lower bound.
+ */
+
+public enum RedirectPolicy {
+    TRACKED(302),
+    PERMANENT(301),
+    PERMANENT_308(308);
+
+    private final int status;
+
+    RedirectPolicy(int status) {
+        this.status = status;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public boolean countsExact() {
+        return this == TRACKED;
+    }
+
+    // what UrlDigest hashes: tracked links keep the bare URL, so rows from before policies still match
+    public String digestInput(String url) {
+        return this == TRACKED ? url : status + " " + url;
+    }
+
+    public static RedirectPolicy orDefault(RedirectPolicy policy) {
+        return policy == null ? TRACKED : policy;
+    }
+
+    public static RedirectPolicy ofStatus(int status) {
+        for (var policy : values()) {
+            if (policy.status == status)
+                return policy;
+        }
+
+        throw new IllegalStateException("Unknown redirect status " + status);
+    }
+}
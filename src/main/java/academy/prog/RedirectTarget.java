@@ -0,0 +1,6 @@
+package academy.prog;
+
+// everything a redirect response needs, Location already validated (RedirectLocation)
+
+public record RedirectTarget(String location, RedirectPolicy policy, String cacheControl) {
+}
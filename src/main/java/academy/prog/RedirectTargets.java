@@ -0,0 +1,23 @@
+package academy.prog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// RedirectTarget factory, the Cache-Control values are shared by all links with the same policy
+
+@Component
+public class RedirectTargets {
+    private static final String NO_STORE = "no-cache, no-store, must-revalidate";
+
+    private final String permanent;
+
+    public RedirectTargets(@Value("${happyurl.redirect.max-age:1d}") Duration maxAge) {
+        this.permanent = "public, max-age=" + maxAge.toSeconds();
+    }
+
+    public RedirectTarget of(String location, RedirectPolicy policy) {
+        return new RedirectTarget(location, policy, policy.countsExact() ? NO_STORE : permanent);
+    }
+}
@@ -0,0 +1,97 @@
+package academy.prog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+    id <-> short code shown to users (/my/{code}).
+    With scrambling on, ids below 2^happyurl.code.bits are first permuted by
+    a keyed bijection of that range so consecutive ids don't give consecutive
+    codes; ids above it map to themselves. The range sets the code length:
+    35 bits (34 billion ids) fit in 6 base62 characters.
+    Changing happyurl.code.key or happyurl.code.bits breaks every link already handed out.
+ */
+
+@Component
+public class ShortCodec {
+    private static final long M1 = 0x9E3779B97F4A7C15L; // odd, so invertible mod 2^bits
+    private static final long M2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final boolean scramble;
+    private final int shift; // at least half the width, so the xor-shift is its own inverse
+    private final long mask;
+    private final long key;
+    private final long m1;
+    private final long m2;
+    private final long m1Inverse;
+    private final long m2Inverse;
+
+    public ShortCodec(@Value("${happyurl.code.scramble:true}") boolean scramble,
+                      @Value("${happyurl.code.bits:35}") int bits,
+                      @Value("${happyurl.code.key:0}") long key) {
+        if (bits < 8 || bits > 62)
+            throw new IllegalArgumentException("happyurl.code.bits must be within [8, 62]: " + bits);
+
+        this.scramble = scramble;
+        this.shift = (bits + 1) / 2;
+        this.mask = (1L << bits) - 1;
+        this.key = key & mask;
+        this.m1 = M1 & mask;
+        this.m2 = M2 & mask;
+        this.m1Inverse = inverse(m1) & mask;
+        this.m2Inverse = inverse(m2) & mask;
+    }
+
+    public String encode(long id) {
+        return Base62.encode(scramble ? scramble(id) : id);
+    }
+
+    public int encode(long id, byte[] dst, int offset) {
+        return Base62.encode(scramble ? scramble(id) : id, dst, offset);
+    }
+
+    // -1 for anything that is not a valid code
+    public long decode(CharSequence code, int from, int to) {
+        long value = Base62.decode(code, from, to);
+        return value < 0 || !scramble ? value : unscramble(value);
+    }
+
+    public long decode(CharSequence code) {
+        return decode(code, 0, code.length());
+    }
+
+    long scramble(long x) {
+        if ((x & ~mask) != 0)
+            return x; // beyond the permuted range, maps to itself
+
+        x ^= key;
+        x = (x * m1) & mask;
+        x ^= x >>> shift;
+        x = (x * m2) & mask;
+        x ^= x >>> shift;
+
+        return x;
+    }
+
+    long unscramble(long x) {
+        if ((x & ~mask) != 0)
+            return x;
+
+        x ^= x >>> shift;
+        x = (x * m2Inverse) & mask;
+        x ^= x >>> shift;
+        x = (x * m1Inverse) & mask;
+        x ^= key;
+
+        return x;
+    }
+
+    // mod 2^64 by Newton iteration, each step doubles the number of correct low bits
+    private static long inverse(long odd) {
+        long inv = odd;
+        for (int i = 0; i < 5; i++)
+            inv *= 2 - odd * inv;
+
+        return inv;
+    }
+}
@@ -0,0 +1,88 @@
+package academy.prog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+    Space-Saving heavy hitters (Metwally et al.) with weighted updates.
+    Keeps at most `capacity` counters; a reported count overestimates the
+    true one by at most its error, which is at most total weight / capacity.
+ */
+
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byCount = new TreeSet<>(
+            Comparator.comparingLong((Entry x) -> x.count).thenComparingLong(x -> x.id));
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void offer(long id, long weight) {
+        var entry = entries.get(id);
+        if (entry != null) {
+            byCount.remove(entry);
+            entry.count += weight;
+        } else if (entries.size() < capacity) {
+            entry = new Entry(id, weight, 0);
+            entries.put(id, entry);
+        } else {
+            // take over the smallest counter, its count becomes our error
+            var min = byCount.pollFirst();
+            entries.remove(min.id);
+
+            entry = new Entry(id, min.count + weight, min.count);
+            entries.put(id, entry);
+        }
+
+        byCount.add(entry);
+    }
+
+    public synchronized List<Estimate> top(int n) {
+        var result = new ArrayList<Estimate>(Math.min(n, entries.size()));
+
+        var it = byCount.descendingIterator();
+        while (it.hasNext() && result.size() < n) {
+            var entry = it.next();
+            result.add(new Estimate(entry.id, entry.count, entry.error));
+        }
+
+        return result;
+    }
+
+    // start over from exact counts, e.g. the persisted ones
+    public synchronized void reset(List<Estimate> exact) {
+        entries.clear();
+        byCount.clear();
+
+        exact.stream().limit(capacity).forEach(x -> {
+            var entry = new Entry(x.id(), x.count(), 0);
+            entries.put(x.id(), entry);
+            byCount.add(entry);
+        });
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public record Estimate(long id, long count, long error) {
+    }
+
+    private static class Entry {
+        private final long id;
+        private long count;
+        private final long error;
+
+        Entry(long id, long count, long error) {
+            this.id = id;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package academy.prog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+    Most redirected links without touching url_record on reads.
+    Fed with every redirect (as the per-link deltas RedirectCounter flushes)
+    and periodically re-seeded from the persisted counts, which also
+    resets the accumulated estimation error. The re-seeding runs under
+    RedirectCounter's flush lock: a delta is either in the counts read or
+    offered afterwards, never both.
+ */
+
+@Component
+public class TopLinks {
+    private static final Logger LOG = LoggerFactory.getLogger(TopLinks.class);
+
+    private final SpaceSaving sketch;
+    private final UrlJdbcRepository urlJdbcRepository;
+
+    public TopLinks(@Value("${happyurl.top.capacity:1000}") int capacity,
+                    UrlJdbcRepository urlJdbcRepository) {
+        this.sketch = new SpaceSaving(capacity);
+        this.urlJdbcRepository = urlJdbcRepository;
+    }
+
+    public void offer(long id, long redirects) {
+        sketch.offer(id, redirects);
+    }
+
+    // n is clamped to [1, capacity]
+    public List<SpaceSaving.Estimate> top(int n) {
+        return sketch.top(Math.max(1, Math.min(n, sketch.capacity())));
+    }
+
+    // only through RedirectCounter.reconcileTopLinks()
+    void reconcile() {
+        try {
+            sketch.reset(urlJdbcRepository.findMostRedirected(sketch.capacity()));
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not reconcile top links with url_record", ex);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package academy.prog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongFunction;
+
+/*
+    id -> RedirectTarget, the ready response of a short link.
+    A short link never changes its target,
+    so hot links are served without touching the database.
+    Entries evicted from here may still be found off-heap (OffHeapUrlCache).
+    Ids the database didn't know are remembered for a short while as well.
+    Hit / miss / eviction counters: /actuator/metrics/cache.gets?tag=cache:urls
+ */
+
+@Component
+public class UrlCache {
+    private final Cache<Long, RedirectTarget> cache;
+    private final Cache<Long, Boolean> missing;
+    private final OffHeapUrlCache offHeap;
+
+    public UrlCache(@Value("${happyurl.cache.maximum-size:100000}") long maximumSize,
+                    @Value("${happyurl.cache.ttl:1h}") Duration ttl,
+                    @Value("${happyurl.cache.negative-ttl:30s}") Duration negativeTtl,
+                    OffHeapUrlCache offHeap,
+                    MeterRegistry meterRegistry) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        missing = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+        this.offHeap = offHeap;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "urls");
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, "missing-urls");
+    }
+
+    public RedirectTarget get(long id, LongFunction<RedirectTarget> loader) {
+        if (missing.getIfPresent(id) != null)
+            return null;
+
+        var target = cache.get(id, x -> {
+            var loaded = offHeap.get(x);
+            if (loaded == null && (loaded = loader.apply(x)) != null)
+                offHeap.put(x, loaded);
+
+            return loaded;
+        });
+        if (target == null)
+            missing.put(id, Boolean.TRUE);
+
+        return target;
+    }
+
+    // lookups without a loader, for callers that load asynchronously
+
+    public RedirectTarget getIfPresent(long id) {
+        var target = cache.getIfPresent(id);
+        if (target == null && (target = offHeap.get(id)) != null)
+            cache.put(id, target);
+
+        return target;
+    }
+
+    // no recorded access, no promotion from off-heap
+    public RedirectTarget peek(long id) {
+        return cache.policy().getIfPresentQuietly(id);
+    }
+
+    public boolean isMissing(long id) {
+        return missing.getIfPresent(id) != null;
+    }
+
+    public void putMissing(long id) {
+        missing.put(id, Boolean.TRUE);
+    }
+
+    public void put(long id, RedirectTarget target) {
+        cache.put(id, target);
+        offHeap.put(id, target);
+        missing.invalidate(id);
+    }
+}
@@ -0,0 +1,133 @@
+package academy.prog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/*
+    Canonical form of a URL, applied before it is digested so that
+    spellings of the same address share one url_record row:
+    lowercase scheme and host, no default port, "/" for an empty path,
+    percent-encoding with uppercase hex and unreserved characters decoded.
+    Optionally query parameters are sorted by name and tracking parameters
+    (exact names or prefix*) dropped - this changes the redirect target too.
+    Rows stored before a setting changed keep their old spelling.
+ */
+
+@Component
+public class UrlCanonicalizer {
+    private static final Comparator<String> BY_NAME = Comparator.comparing(UrlCanonicalizer::name);
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final boolean sortQuery;
+    private final String[] stripParams;
+
+    public UrlCanonicalizer(@Value("${happyurl.canonical.sort-query:false}") boolean sortQuery,
+                            @Value("${happyurl.canonical.strip-params:}") String[] stripParams) {
+        this.sortQuery = sortQuery;
+        this.stripParams = stripParams;
+    }
+
+    // raw user input -> validated canonical Location value, IllegalArgumentException if invalid
+    public String canonicalize(String url) {
+        if (url == null || url.isBlank())
+            throw new IllegalArgumentException("URL is missing");
+
+        var uri = URI.create(RedirectLocation.of(UrlDigest.normalize(url)));
+        var result = new StringBuilder(url.length() + 1);
+
+        var scheme = uri.getScheme().toLowerCase();
+        result.append(scheme).append("://");
+        if (uri.getRawUserInfo() != null)
+            appendEncoded(uri.getRawUserInfo(), result).append('@');
+        result.append(uri.getHost().toLowerCase());
+        if (uri.getPort() >= 0 && uri.getPort() != defaultPort(scheme))
+            result.append(':').append(uri.getPort());
+
+        var path = uri.getRawPath();
+        if (path.isEmpty())
+            result.append('/');
+        else
+            appendEncoded(path, result);
+
+        if (uri.getRawQuery() != null)
+            appendQuery(uri.getRawQuery(), result);
+        if (uri.getRawFragment() != null)
+            appendEncoded(uri.getRawFragment(), result.append('#'));
+
+        if (result.length() > RedirectLocation.MAX_LENGTH)
+            throw new IllegalArgumentException("URL longer than " + RedirectLocation.MAX_LENGTH + " characters");
+
+        return result.toString();
+    }
+
+    private void appendQuery(String query, StringBuilder result) {
+        var params = new ArrayList<String>();
+        for (var param : query.split("&")) {
+            if (!param.isEmpty() && !stripped(name(param)))
+                params.add(param);
+        }
+        if (params.isEmpty())
+            return;
+
+        if (sortQuery)
+            params.sort(BY_NAME); // stable, repeated names keep their order
+
+        result.append('?');
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0)
+                result.append('&');
+            appendEncoded(params.get(i), result);
+        }
+    }
+
+    private boolean stripped(String name) {
+        for (var pattern : stripParams) {
+            boolean prefix = pattern.endsWith("*");
+            int length = prefix ? pattern.length() - 1 : pattern.length();
+
+            if ((prefix ? name.length() >= length : name.length() == length)
+                    && name.regionMatches(true, 0, pattern, 0, length))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static String name(String param) {
+        int eq = param.indexOf('=');
+        return eq < 0 ? param : param.substring(0, eq);
+    }
+
+    // %xx -> %XX, and the character itself when it is unreserved; URI has checked every % has two hex digits
+    private static StringBuilder appendEncoded(String raw, StringBuilder result) {
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '%') {
+                result.append(c);
+                continue;
+            }
+
+            int value = Character.digit(raw.charAt(i + 1), 16) << 4 | Character.digit(raw.charAt(i + 2), 16);
+            if (unreserved(value))
+                result.append((char) value);
+            else
+                result.append('%').append(HEX[value >> 4]).append(HEX[value & 0xF]);
+            i += 2;
+        }
+
+        return result;
+    }
+
+    private static boolean unreserved(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static int defaultPort(String scheme) {
+        return scheme.equals("https") ? 443 : 80;
+    }
+}
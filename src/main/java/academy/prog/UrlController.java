@@ -1,65 +1,199 @@
 package academy.prog;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.URI;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 @RestController
+@Profile("!reactive")
 public class UrlController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_CHUNK = 1000;
+
     private final UrlService urlService;
+    private final ShortCodec shortCodec;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter statWriter;
 
-    public UrlController(UrlService urlService) {
+    public UrlController(UrlService urlService, ShortCodec shortCodec, ObjectMapper objectMapper) {
         this.urlService = urlService;
+        this.shortCodec = shortCodec;
+        this.objectMapper = objectMapper;
+        this.statWriter = objectMapper.writerFor(UrlStatDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE); // let the generator buffer
     }
 
     @GetMapping("shorten_simple")
-    public UrlResultDTO shorten(@RequestParam String url) { // Jackson / GSON
+    public UrlResultDTO shorten(@RequestParam String url,
+                                @RequestParam(required = false) RedirectPolicy redirect) { // Jackson / GSON
         var urlDTO = new UrlDTO();
         urlDTO.setUrl(url);
+        urlDTO.setRedirect(redirect);
 
         long id = urlService.saveUrl(urlDTO);
 
-        var result = new UrlResultDTO();
-        result.setUrl(urlDTO.getUrl());
-        result.setShortUrl(Long.toString(id));
-
-        return result;
+        return result(urlDTO, id);
     }
 
     @PostMapping("shorten")
     public UrlResultDTO shorten(@RequestBody UrlDTO urlDTO) { // Jackson / GSON
         long id = urlService.saveUrl(urlDTO);
 
-        var result = new UrlResultDTO();
-        result.setUrl(urlDTO.getUrl());
-        result.setShortUrl(Long.toString(id));
+        return result(urlDTO, id);
+    }
 
-        return result;
+    @PostMapping("shorten/batch")
+    public List<UrlResultDTO> shortenBatch(@RequestBody List<UrlDTO> urlDTOs) {
+        return results(urlDTOs);
     }
 
     /*
-        302
-        Location: https://goto.com
-        Cache-Control: no-cache, no-store, must-revalidate
+        one UrlDTO per line in, one UrlResultDTO per line out,
+        processed in chunks so neither side is held in memory
      */
 
-    @GetMapping("my/{id}")
-    public ResponseEntity<Void> redirect(@PathVariable("id") Long id) {
-        var url = urlService.getUrl(id);
+    @PostMapping(value = "shorten/batch", consumes = NDJSON, produces = NDJSON)
+    public void shortenBatchStream(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+
+        var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        var out = response.getOutputStream();
+        var chunk = new ArrayList<UrlDTO>(STREAM_CHUNK);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank())
+                continue;
+
+            try {
+                chunk.add(objectMapper.readValue(line, UrlDTO.class));
+            } catch (JsonProcessingException ex) {
+                throw new IllegalArgumentException("Malformed line: " + ex.getOriginalMessage());
+            }
+            if (chunk.size() == STREAM_CHUNK) {
+                writeLines(results(chunk), out);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            writeLines(results(chunk), out);
+    }
+
+    /*
+        302                                        301 / 308
+        Location: https://goto.com                 Location: https://goto.com
+        Cache-Control: no-cache, no-store, ...     Cache-Control: public, max-age=...
+     */
+
+    @GetMapping("my/{code}")
+    public ResponseEntity<Void> redirect(@PathVariable("code") String code) {
+        long id = shortCodec.decode(code);
+        var target = id < 0 ? null : urlService.getTarget(id);
+        if (target == null)
+            return ResponseEntity.notFound().build();
 
         var headers = new HttpHeaders();
-        headers.setLocation(URI.create(url));
-        headers.setCacheControl("no-cache, no-store, must-revalidate");
+        headers.set(HttpHeaders.LOCATION, target.location()); // validated when shortened
+        headers.set(HttpHeaders.CACHE_CONTROL, target.cacheControl());
 
-        return new ResponseEntity<>(headers, HttpStatus.FOUND);
+        return new ResponseEntity<>(headers, HttpStatus.valueOf(target.policy().status()));
     }
 
+    /*
+        Whole table as one JSON array, written while rows are read
+        from the database so memory use doesn't depend on the table size.
+     */
+
     @GetMapping("stat")
-    public List<UrlStatDTO> stat() {
-        return urlService.getStatistics();
+    public void stat(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try (var generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            urlService.streamStatistics(x -> {
+                try {
+                    statWriter.writeValue(generator, x);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    @GetMapping("stat/page")
+    public UrlStatPageDTO statPage(@RequestParam(required = false) String after,
+                                   @RequestParam(defaultValue = "${happyurl.stat.page-size:100}") int size) {
+        return urlService.getStatistics(after, size);
+    }
+
+    @GetMapping("stat/top")
+    public List<UrlTopDTO> statTop(@RequestParam(defaultValue = "10") int n) {
+        return urlService.getTop(n);
+    }
+
+    // from / to: ISO-8601 instants, by default the last 24 hours
+    @GetMapping("stat/{code}/timeseries")
+    public List<ClickBucketDTO> statTimeSeries(
+            @PathVariable("code") String code,
+            @RequestParam(defaultValue = "HOUR") ClickBucketRepository.Resolution resolution,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        var end = to == null ? new Date() : Date.from(to);
+        var start = from == null ? new Date(end.getTime() - 24 * 3600_000L) : Date.from(from);
+
+        return urlService.getTimeSeries(code, resolution, start, end);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    private List<UrlResultDTO> results(List<UrlDTO> urlDTOs) {
+        long[] ids = urlService.saveUrls(urlDTOs);
+
+        var results = new ArrayList<UrlResultDTO>(ids.length);
+        for (int i = 0; i < ids.length; i++)
+            results.add(result(urlDTOs.get(i), ids[i]));
+
+        return results;
+    }
+
+    private void writeLines(List<UrlResultDTO> results, OutputStream out) throws IOException {
+        for (var result : results) {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private UrlResultDTO result(UrlDTO urlDTO, long id) {
+        var result = new UrlResultDTO();
+        result.setUrl(urlDTO.getUrl());
+        result.setRedirect(RedirectPolicy.orDefault(urlDTO.getRedirect()));
+        result.setShortUrl(shortCodec.encode(id));
+
+        return result;
     }
 }
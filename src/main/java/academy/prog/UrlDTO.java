@@ -2,6 +2,7 @@ package academy.prog;
 
 public class UrlDTO {
     protected String url;
+    protected RedirectPolicy redirect; // TRACKED when not given
 
     public String getUrl() {
         return url;
@@ -10,4 +11,12 @@ public class UrlDTO {
     public void setUrl(String url) {
         this.url = url;
     }
+
+    public RedirectPolicy getRedirect() {
+        return redirect;
+    }
+
+    public void setRedirect(RedirectPolicy redirect) {
+        this.redirect = redirect;
+    }
 }
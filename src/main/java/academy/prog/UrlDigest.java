@@ -0,0 +1,33 @@
+package academy.prog;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/*
+    Fixed-width key for long URL deduplication:
+    first 128 bits of SHA-256 over the normalized URL.
+ */
+
+public final class UrlDigest {
+    public static final int LENGTH = 16;
+
+    private UrlDigest() {
+    }
+
+    public static String normalize(String url) {
+        return url.strip();
+    }
+
+    public static byte[] of(String normalizedUrl) {
+        try {
+            var sha256 = MessageDigest.getInstance("SHA-256");
+            var hash = sha256.digest(normalizedUrl.getBytes(StandardCharsets.UTF_8));
+
+            return Arrays.copyOf(hash, LENGTH);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
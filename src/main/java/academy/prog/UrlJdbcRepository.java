@@ -0,0 +1,208 @@
+package academy.prog;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// bulk statements that would be too chatty through JPA dirty checking
+
+@Repository
+public class UrlJdbcRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public UrlJdbcRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    /*
+        Insert-or-get in one statement: the unique digest index makes
+        concurrent shortens of the same URL converge on a single row.
+        The matched branch is a no-op update so the existing row shows up in FINAL TABLE.
+        Named parameters, ReactiveUrlRepository runs the same statement over R2DBC.
+     */
+    static final String UPSERT = """
+            select id, url, redirect_status from final table (
+                merge into url_record t
+                using (values (cast(:digest as binary(16)), cast(:url as varchar(255)), cast(:status as smallint),
+                               cast(:id as bigint))) s (digest, url, redirect_status, id)
+                on t.digest = s.digest
+                when matched then update set t.digest = s.digest
+                when not matched then insert (id, count, last_access, url, digest, redirect_status)
+                    values (s.id, 0, current_timestamp, s.url, s.digest, s.redirect_status)
+            )""";
+    static final int UPSERT_ATTEMPTS = 3;
+    private static final int STAT_FETCH_SIZE = 1000;
+
+    // newId is only used (and otherwise wasted) when the URL is not there yet
+    public StoredUrl upsert(String url, RedirectPolicy policy, byte[] digest, long newId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return namedJdbcTemplate.queryForObject(UPSERT,
+                        Map.of("digest", digest, "url", url, "status", policy.status(), "id", newId),
+                        (rs, n) -> storedUrl(rs));
+            } catch (DuplicateKeyException ex) {
+                // lost an insert race, the next attempt takes the matched branch
+                if (attempt == UPSERT_ATTEMPTS)
+                    throw ex;
+            }
+        }
+    }
+
+    public List<StoredUrl> findByDigests(Collection<byte[]> digests) {
+        return namedJdbcTemplate.query("select id, url, redirect_status from url_record where digest in (:digests)",
+                Map.of("digests", digests),
+                (rs, n) -> storedUrl(rs));
+    }
+
+    // first id of a freshly reserved [first, first + count) range
+    public long allocateIds(int count) {
+        return jdbcTemplate.queryForObject(
+                "select next_id from final table (update url_id_allocator set next_id = next_id + ?)",
+                Long.class, count) - count;
+    }
+
+    // every id below it has been reserved by some node
+    public long readNextId() {
+        return jdbcTemplate.queryForObject("select next_id from url_id_allocator", Long.class);
+    }
+
+    // all or nothing, a concurrent shorten of one of the URLs fails the whole batch
+    @Transactional
+    public void insertAll(List<NewUrl> urls) {
+        jdbcTemplate.batchUpdate(
+                "insert into url_record (id, count, last_access, url, digest, redirect_status) " +
+                        "values (?, 0, current_timestamp, ?, ?, ?)",
+                urls, urls.size(), (ps, url) -> {
+                    ps.setLong(1, url.id());
+                    ps.setString(2, url.url());
+                    ps.setBytes(3, url.digest());
+                    ps.setInt(4, url.policy().status());
+                });
+    }
+
+    // the deltas whose row does not exist (yet)
+    public List<RedirectCounter.Delta> addRedirects(List<RedirectCounter.Delta> deltas) {
+        var updated = jdbcTemplate.batchUpdate(
+                "update url_record set count = count + ?, last_access = greatest(last_access, ?) where id = ?",
+                deltas, deltas.size(), (ps, delta) -> {
+                    ps.setLong(1, delta.count());
+                    ps.setTimestamp(2, new Timestamp(delta.lastAccess()));
+                    ps.setLong(3, delta.id());
+                });
+
+        var missing = new ArrayList<RedirectCounter.Delta>();
+        int i = 0;
+        for (var batch : updated) {
+            for (int count : batch) {
+                if (count == 0)
+                    missing.add(deltas.get(i));
+                i++;
+            }
+        }
+
+        return missing;
+    }
+
+    // null when the table is empty
+    public IdRange findIdRange() {
+        return jdbcTemplate.queryForObject("select min(id), max(id) from url_record",
+                (rs, n) -> rs.getObject(1) == null ? null : new IdRange(rs.getLong(1), rs.getLong(2)));
+    }
+
+    // keyset chunk of (afterId, maxId], lets several readers split the table
+    public List<StoredUrl> findUrls(long afterId, long maxId, int limit) {
+        return jdbcTemplate.query(
+                "select id, url, redirect_status from url_record where id > ? and id <= ? order by id limit ?",
+                (rs, n) -> storedUrl(rs), afterId, maxId, limit);
+    }
+
+    // keyset chunk of (afterId, maxId], ids only
+    public List<Long> findIds(long afterId, long maxId, int limit) {
+        return jdbcTemplate.queryForList("select id from url_record where id > ? and id <= ? order by id limit ?",
+                Long.class, afterId, maxId, limit);
+    }
+
+    // read along url_record_hotness_idx, no table scan
+    public List<StoredUrl> findHottest(int limit) {
+        return jdbcTemplate.query(
+                "select id, url, redirect_status from url_record order by count desc, last_access desc limit ?",
+                (rs, n) -> storedUrl(rs), limit);
+    }
+
+    public long count() {
+        return jdbcTemplate.queryForObject("select count(*) from url_record", Long.class);
+    }
+
+    // forward-only, for loading every link into memory
+    public void forEachUrl(Consumer<NewUrl> consumer) {
+        jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement("select id, url, redirect_status, digest from url_record",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STAT_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(new NewUrl(rs.getLong(1), rs.getString(2), RedirectPolicy.ofStatus(rs.getInt(3)),
+                    rs.getBytes(4)));
+        });
+    }
+
+    public List<UrlStat> findStats(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "select id, url, count, last_access, redirect_status from url_record where id > ? order by id limit ?",
+                (rs, n) -> urlStat(rs), afterId, limit);
+    }
+
+    // forward-only, rows are handed over while the result set is being read
+    public void forEachStat(Consumer<UrlStat> consumer) {
+        jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(
+                    "select id, url, count, last_access, redirect_status from url_record order by id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STAT_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(urlStat(rs));
+        });
+    }
+
+    // exact persisted counts along url_record_hotness_idx - for periodic reconciliation
+    public List<SpaceSaving.Estimate> findMostRedirected(int limit) {
+        return jdbcTemplate.query("select id, count from url_record where count > 0 order by count desc limit ?",
+                (rs, n) -> new SpaceSaving.Estimate(rs.getLong(1), rs.getLong(2), 0), limit);
+    }
+
+    private static UrlStat urlStat(ResultSet rs) throws SQLException {
+        return new UrlStat(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getTimestamp(4),
+                RedirectPolicy.ofStatus(rs.getInt(5)));
+    }
+
+    private static StoredUrl storedUrl(ResultSet rs) throws SQLException {
+        return new StoredUrl(rs.getLong(1), rs.getString(2), RedirectPolicy.ofStatus(rs.getInt(3)));
+    }
+
+    public record UrlStat(long id, String url, long count, Date lastAccess, RedirectPolicy policy) {
+    }
+
+    public record StoredUrl(long id, String url, RedirectPolicy policy) {
+    }
+
+    public record IdRange(long min, long max) {
+    }
+
+    public record NewUrl(long id, String url, RedirectPolicy policy, byte[] digest) {
+    }
+}
@@ -0,0 +1,245 @@
+package academy.prog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+    Durable copy of the memory-first link table (MemoryUrlStore):
+    a snapshot of the whole table plus a write-ahead log of the links added since.
+
+    log:      urls-<index>.log segments of records
+              [int length][int crc32][long id][byte tag][URL bytes],
+              a torn or corrupt record ends the replay of its segment
+    snapshot: [long magic] then [long id][byte tag][unsigned short length][URL bytes]...,
+              [long 0] and the crc32 of everything before it;
+              written to a temporary file and renamed over the previous one
+
+    rotate() starts a new segment; once a snapshot taken after the rotation is
+    in place, the segments before it are deleted. Recovery = snapshot + every
+    remaining segment, so an entry may be read twice but never missed.
+ */
+
+public class UrlJournal {
+    private static final Logger LOG = LoggerFactory.getLogger(UrlJournal.class);
+    private static final long SNAPSHOT_MAGIC = 0x4855524C534E4150L; // "HURLSNAP"
+    private static final String SNAPSHOT = "snapshot";
+    private static final int HEADER_SIZE = 8;
+
+    private final Path dir;
+    private final boolean fsync;
+    private FileChannel log;
+    private long segment;
+
+    public UrlJournal(Path dir, boolean fsync) {
+        this.dir = dir;
+        this.fsync = fsync;
+    }
+
+    public interface EntryConsumer {
+        void accept(long id, String url, int tag);
+    }
+
+    public boolean hasSnapshot() {
+        return Files.exists(dir.resolve(SNAPSHOT));
+    }
+
+    public long readSnapshot(EntryConsumer consumer) throws IOException {
+        var crc = new CRC32();
+        long count = 0;
+
+        try (var in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(dir.resolve(SNAPSHOT)), 1 << 16), crc))) {
+            if (in.readLong() != SNAPSHOT_MAGIC)
+                throw new IOException("Not a snapshot: " + dir.resolve(SNAPSHOT));
+
+            var value = new byte[0xFFFF];
+            for (long id = in.readLong(); id != 0; id = in.readLong()) {
+                int tag = in.readUnsignedByte();
+                int length = in.readUnsignedShort();
+                in.readFully(value, 0, length);
+                consumer.accept(id, new String(value, 0, length, StandardCharsets.UTF_8), tag);
+                count++;
+            }
+
+            long expected = crc.getValue();
+            if ((in.readInt() & 0xFFFFFFFFL) != expected)
+                throw new IOException("Corrupt snapshot: " + dir.resolve(SNAPSHOT));
+        }
+
+        return count;
+    }
+
+    // hands over every logged entry and starts a fresh segment for append()
+    public synchronized long open(EntryConsumer consumer) throws IOException {
+        Files.createDirectories(dir);
+
+        long replayed = 0;
+        long next = 0;
+        for (long index : existingSegments()) {
+            replayed += replay(index, consumer);
+            next = index + 1;
+        }
+
+        startSegment(next);
+
+        LOG.info("Replayed {} links from the log in {}", replayed, dir);
+        return replayed;
+    }
+
+    public record Entry(long id, String url, int tag) {
+    }
+
+    public void append(long id, String url, int tag) throws IOException {
+        appendAll(List.of(new Entry(id, url, tag)));
+    }
+
+    // one write and at most one fsync for the whole batch
+    public synchronized void appendAll(List<Entry> entries) throws IOException {
+        var urls = new byte[entries.size()][];
+        int size = 0;
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = entries.get(i).url().getBytes(StandardCharsets.UTF_8);
+            size += HEADER_SIZE + 9 + urls[i].length;
+        }
+
+        var records = ByteBuffer.allocate(size);
+        var crc = new CRC32();
+        for (int i = 0; i < urls.length; i++) {
+            int start = records.position();
+            records.position(start + HEADER_SIZE);
+            records.putLong(entries.get(i).id()).put((byte) entries.get(i).tag()).put(urls[i]);
+
+            int length = records.position() - start - HEADER_SIZE;
+            crc.reset();
+            crc.update(records.array(), start + HEADER_SIZE, length);
+            records.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+        }
+        records.flip();
+
+        while (records.hasRemaining())
+            log.write(records);
+        if (fsync)
+            log.force(false);
+    }
+
+    // entries appended before this call are in segments below the returned one
+    public synchronized long rotate() throws IOException {
+        log.close();
+        startSegment(segment + 1);
+
+        return segment;
+    }
+
+    // the table must hold everything logged below segment
+    public void writeSnapshot(OffHeapUrlTable table, long segment) throws IOException {
+        var tmp = dir.resolve(SNAPSHOT + ".tmp");
+        var crc = new CRC32();
+
+        try (var file = new FileOutputStream(tmp.toFile())) {
+            var out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+            out.writeLong(SNAPSHOT_MAGIC);
+            table.forEach((id, value, length, tag) -> {
+                out.writeLong(id);
+                out.writeByte(tag);
+                out.writeShort(length);
+                out.write(value, 0, length);
+            });
+            out.writeLong(0);
+            out.flush();
+
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+            file.getChannel().force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long index : existingSegments()) {
+            if (index < segment)
+                Files.deleteIfExists(segmentPath(index));
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (log != null)
+            log.close();
+    }
+
+    private long replay(long index, EntryConsumer consumer) throws IOException {
+        long count = 0;
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath(index)), 1 << 16))) {
+            var crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException ex) {
+                    break;
+                }
+
+                int expected = in.readInt();
+                if (length < 9 || length > 9 + 0xFFFF)
+                    throw new IOException("Bad record length " + length);
+
+                var record = new byte[length];
+                in.readFully(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != expected)
+                    throw new IOException("Bad record checksum");
+
+                var buffer = ByteBuffer.wrap(record);
+                consumer.accept(buffer.getLong(), new String(record, 9, length - 9, StandardCharsets.UTF_8),
+                        buffer.get() & 0xFF);
+                count++;
+            }
+        } catch (IOException ex) {
+            // the tail of a segment that was being written when the node died
+            LOG.warn("Stopped replaying {} after {} links: {}", segmentPath(index), count, ex.toString());
+        }
+
+        return count;
+    }
+
+    private void startSegment(long index) throws IOException {
+        log = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segment = index;
+    }
+
+    private List<Long> existingSegments() throws IOException {
+        var result = new ArrayList<Long>();
+
+        try (var files = Files.list(dir)) {
+            files.map(x -> x.getFileName().toString())
+                    .filter(x -> x.startsWith("urls-") && x.endsWith(".log"))
+                    .forEach(x -> result.add(Long.parseLong(x.substring("urls-".length(), x.length() - ".log".length()))));
+        }
+        result.sort(null);
+
+        return result;
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("urls-%020d.log", index));
+    }
+}
@@ -6,12 +6,17 @@ import java.util.Date;
 @Entity
 public class UrlRecord {
     @Id
-    @GeneratedValue
-    private Long id;
+    private Long id; // assigned by IdAllocator
 
     @Column(nullable = false)
     private String url; // long URL
 
+    @Column(columnDefinition = "binary(16)", unique = true)
+    private byte[] digest; // UrlDigest of url, null only for pre-V3 duplicates
+
+    @Column(nullable = false)
+    private Short redirectStatus; // RedirectPolicy
+
     @Column(nullable = false)
     private Long count;
 
@@ -21,18 +26,10 @@ public class UrlRecord {
 
     public UrlRecord() {
         count = 0L;
+        redirectStatus = (short) RedirectPolicy.TRACKED.status();
         lastAccess = new Date();
     }
 
-    public UrlRecord(String url) {
-        this();
-        this.url = url;
-    }
-
-    public static UrlRecord of(UrlDTO urlDTO) {
-        return new UrlRecord(urlDTO.getUrl());
-    }
-
     public Long getId() {
         return id;
     }
@@ -49,6 +46,22 @@ public class UrlRecord {
         this.url = url;
     }
 
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public void setDigest(byte[] digest) {
+        this.digest = digest;
+    }
+
+    public Short getRedirectStatus() {
+        return redirectStatus;
+    }
+
+    public void setRedirectStatus(Short redirectStatus) {
+        this.redirectStatus = redirectStatus;
+    }
+
     public Long getCount() {
         return count;
     }
@@ -64,15 +77,4 @@ public class UrlRecord {
     public void setLastAccess(Date lastAccess) {
         this.lastAccess = lastAccess;
     }
-
-    public UrlStatDTO toStatDTO() {
-        var result = new UrlStatDTO();
-
-        result.setUrl(url);
-        result.setShortUrl(Long.toString(id));
-        result.setRedirects(count);
-        result.setLastAccess(lastAccess);
-
-        return result;
-    }
 }
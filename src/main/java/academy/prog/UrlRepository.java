@@ -1,7 +1,22 @@
 package academy.prog;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 public interface UrlRepository extends JpaRepository<UrlRecord, Long> {
-    UrlRecord findByUrl(String url);
+
+    /*
+        Redirect lookup: two columns into a DTO, no managed UrlRecord,
+        read-only so Hibernate skips snapshots and flushing.
+        Redirect counts are written separately by RedirectCounter.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new academy.prog.UrlRepository$Redirect(r.url, r.redirectStatus) from UrlRecord r where r.id = :id")
+    Optional<Redirect> findRedirectById(long id);
+
+    record Redirect(String url, Short redirectStatus) {
+    }
 }
@@ -1,53 +1,295 @@
 package academy.prog;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 // DB -> E(20) -> R -> S -> DTO <- C -> View / JSON (5)
 
 @Service
 public class UrlService {
     private final UrlRepository urlRepository;
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final ClickPipeline clickPipeline;
+    private final UrlCache urlCache;
+    private final MemoryUrlStore memoryUrlStore;
+    private final IssuedIds issuedIds;
+    private final IdAllocator idAllocator;
+    private final ShortCodec shortCodec;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final RedirectTargets redirectTargets;
+    private final TopLinks topLinks;
+    private final ClickTimeSeries clickTimeSeries;
+    private final int batchSize;
+    private final int maxPageSize;
 
-    public UrlService(UrlRepository urlRepository) {
+    public UrlService(UrlRepository urlRepository, UrlJdbcRepository urlJdbcRepository,
+                      ClickPipeline clickPipeline, UrlCache urlCache, MemoryUrlStore memoryUrlStore,
+                      IssuedIds issuedIds, IdAllocator idAllocator, ShortCodec shortCodec, UrlCanonicalizer urlCanonicalizer,
+                      RedirectTargets redirectTargets, TopLinks topLinks, ClickTimeSeries clickTimeSeries,
+                      @Value("${happyurl.batch.size:1000}") int batchSize,
+                      @Value("${happyurl.stat.max-page-size:1000}") int maxPageSize) {
         this.urlRepository = urlRepository;
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.clickPipeline = clickPipeline;
+        this.urlCache = urlCache;
+        this.memoryUrlStore = memoryUrlStore;
+        this.issuedIds = issuedIds;
+        this.idAllocator = idAllocator;
+        this.shortCodec = shortCodec;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.redirectTargets = redirectTargets;
+        this.topLinks = topLinks;
+        this.clickTimeSeries = clickTimeSeries;
+        this.batchSize = batchSize;
+        this.maxPageSize = maxPageSize;
     }
 
-    @Transactional
+    // single auto-committed statement, no find-then-insert race
     public long saveUrl(UrlDTO urlDTO) {
-        var urlRecord = urlRepository.findByUrl(urlDTO.getUrl());
-        if (urlRecord == null) {
-            urlRecord = UrlRecord.of(urlDTO);
-            urlRepository.save(urlRecord);
+        var link = link(urlDTO);
+
+        if (memoryUrlStore.enabled())
+            return saveInMemory(link);
+
+        var stored = urlJdbcRepository.upsert(link.url(), link.policy(), link.digest(), idAllocator.next());
+        if (!link.matches(stored))
+            throw new IllegalStateException("URL digest collision with record " + stored.id());
+
+        issuedIds.add(stored.id());
+        urlCache.put(stored.id(), redirectTargets.of(stored.url(), stored.policy()));
+
+        return stored.id();
+    }
+
+    private long saveInMemory(Link link) {
+        long id = memoryUrlStore.save(link.url(), link.policy(), link.digest());
+        issuedIds.add(id);
+
+        return id;
+    }
+
+    // ids in input order, duplicates within the batch get the same id
+    public long[] saveUrls(List<UrlDTO> urlDTOs) {
+        var links = urlDTOs.stream().map(this::link).toList();
+        if (memoryUrlStore.enabled()) {
+            var ids = memoryUrlStore.saveAll(links.stream()
+                    .map(x -> new MemoryUrlStore.NewLink(x.url(), x.policy(), x.digest()))
+                    .toList());
+            for (long id : ids)
+                issuedIds.add(id);
+
+            return ids;
+        }
+
+        var digests = new LinkedHashMap<Link, byte[]>();
+        links.forEach(x -> digests.computeIfAbsent(x, Link::digest));
+
+        var resolved = new HashMap<Link, Long>();
+        var chunk = new ArrayList<Map.Entry<Link, byte[]>>(batchSize);
+        for (var entry : digests.entrySet()) {
+            chunk.add(entry);
+            if (chunk.size() == batchSize) {
+                saveChunk(chunk, resolved);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            saveChunk(chunk, resolved);
+
+        var ids = new long[links.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = resolved.get(links.get(i));
+
+        return ids;
+    }
+
+    private void saveChunk(List<Map.Entry<Link, byte[]>> chunk, Map<Link, Long> resolved) {
+        urlJdbcRepository.findByDigests(chunk.stream().map(Map.Entry::getValue).toList())
+                .forEach(x -> resolved.put(new Link(x.url(), x.policy()), x.id()));
+
+        var missing = chunk.stream()
+                .filter(x -> !resolved.containsKey(x.getKey()))
+                .toList();
+        if (!missing.isEmpty()) {
+            var ids = idAllocator.next(missing.size());
+            var newUrls = new ArrayList<UrlJdbcRepository.NewUrl>(missing.size());
+            for (int i = 0; i < ids.length; i++) {
+                var link = missing.get(i).getKey();
+                newUrls.add(new UrlJdbcRepository.NewUrl(ids[i], link.url(), link.policy(), missing.get(i).getValue()));
+            }
+
+            try {
+                urlJdbcRepository.insertAll(newUrls);
+                newUrls.forEach(x -> resolved.put(new Link(x.url(), x.policy()), x.id()));
+            } catch (DuplicateKeyException ex) {
+                // raced with another shorten, settle the chunk one URL at a time
+                for (var entry : missing) {
+                    var link = entry.getKey();
+                    var stored = urlJdbcRepository.upsert(link.url(), link.policy(), entry.getValue(), idAllocator.next());
+                    if (!link.matches(stored))
+                        throw new IllegalStateException("URL digest collision with record " + stored.id());
+
+                    resolved.put(link, stored.id());
+                }
+            }
+        }
+
+        for (var entry : chunk) {
+            var link = entry.getKey();
+            Long id = resolved.get(link);
+            if (id == null)
+                throw new IllegalStateException("URL digest collision for " + link.url());
+
+            issuedIds.add(id);
+            urlCache.put(id, redirectTargets.of(link.url(), link.policy()));
+        }
+    }
+
+    // no transaction here: a cache hit must not borrow a connection
+    public RedirectTarget getTarget(long id) {
+        var target = memoryUrlStore.get(id);
+        if (target == null) {
+            if (!issuedIds.mightExist(id))
+                return null;
+
+            target = urlCache.get(id, this::loadTarget);
+            if (target == null)
+                return null;
         }
 
-        return urlRecord.getId();
+        clickPipeline.record(id, System.currentTimeMillis());
+
+        return target;
     }
 
-    @Transactional
-    public String getUrl(long id) {
-        var urlOpt = urlRepository.findById(id);
-        if (urlOpt.isEmpty())
-            return null;
+    // cache only, null on a miss without counting the click - the caller falls back to getTarget
+    public RedirectTarget getCachedTarget(long id) {
+        var target = memoryUrlStore.get(id);
+        if (target == null)
+            target = urlCache.getIfPresent(id);
+        if (target != null)
+            clickPipeline.record(id, System.currentTimeMillis());
+
+        return target;
+    }
 
-        var urlRecord = urlOpt.get();
-        urlRecord.setCount(urlRecord.getCount() + 1);
-        urlRecord.setLastAccess(new Date());
+    // for reads that are not redirects: the cache is neither filled nor reordered by them
+    private RedirectTarget peekTarget(long id) {
+        var target = memoryUrlStore.get(id);
+        if (target == null)
+            target = urlCache.peek(id);
 
-        return urlRecord.getUrl();
+        return target != null ? target : loadTarget(id);
+    }
+
+    // rows shortened before validation existed are converted once per cache fill
+    private RedirectTarget loadTarget(long id) {
+        return urlRepository.findRedirectById(id)
+                .map(x -> redirectTargets.of(RedirectLocation.of(x.url()), RedirectPolicy.ofStatus(x.redirectStatus())))
+                .orElse(null);
+    }
+
+    // keyset pagination: after is the short code of the last item of the previous page
+    public UrlStatPageDTO getStatistics(String after, int size) {
+        long afterId = after == null ? 0 : shortCodec.decode(after);
+        if (afterId < 0)
+            throw new IllegalArgumentException("Invalid cursor: " + after);
+
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+
+        var items = new ArrayList<UrlStatDTO>(limit);
+        long lastId = afterId;
+        for (var stat : urlJdbcRepository.findStats(afterId, limit)) {
+            items.add(toStatDTO(stat));
+            lastId = stat.id();
+        }
+
+        var result = new UrlStatPageDTO();
+        result.setItems(items);
+        result.setNext(items.size() == limit ? shortCodec.encode(lastId) : null);
+
+        return result;
     }
 
     @Transactional(readOnly = true)
-    public List<UrlStatDTO> getStatistics() {
-        var records = urlRepository.findAll();
-        var result = new ArrayList<UrlStatDTO>();
+    public void streamStatistics(Consumer<UrlStatDTO> consumer) {
+        urlJdbcRepository.forEachStat(x -> consumer.accept(toStatDTO(x)));
+    }
+
+    public List<UrlTopDTO> getTop(int n) {
+        var estimates = topLinks.top(n);
+        var result = new ArrayList<UrlTopDTO>(estimates.size());
+
+        for (var estimate : estimates) {
+            var target = peekTarget(estimate.id());
+            if (target == null)
+                continue;
 
-        records.forEach(x -> result.add(x.toStatDTO()));
+            var dto = new UrlTopDTO();
+            dto.setUrl(target.location());
+            dto.setShortUrl(shortCodec.encode(estimate.id()));
+            dto.setRedirect(target.policy());
+            dto.setRedirects(estimate.count());
+            dto.setError(estimate.error());
+            result.add(dto);
+        }
 
         return result;
     }
+
+    public List<ClickBucketDTO> getTimeSeries(String code, ClickBucketRepository.Resolution resolution,
+                                              Date from, Date to) {
+        long id = shortCodec.decode(code);
+        if (id < 0)
+            throw new IllegalArgumentException("Invalid short code: " + code);
+
+        var result = new ArrayList<ClickBucketDTO>();
+        for (var bucket : clickTimeSeries.find(id, resolution, from, to)) {
+            var dto = new ClickBucketDTO();
+            dto.setStart(new Date(bucket.start()));
+            dto.setRedirects(bucket.clicks());
+            result.add(dto);
+        }
+
+        return result;
+    }
+
+    // validated and canonicalized here so that redirects never parse
+    private Link link(UrlDTO urlDTO) {
+        return new Link(urlCanonicalizer.canonicalize(urlDTO.getUrl()), RedirectPolicy.orDefault(urlDTO.getRedirect()));
+    }
+
+    private UrlStatDTO toStatDTO(UrlJdbcRepository.UrlStat stat) {
+        var result = new UrlStatDTO();
+
+        result.setUrl(stat.url());
+        result.setShortUrl(shortCodec.encode(stat.id()));
+        result.setRedirect(stat.policy());
+        result.setRedirects(stat.count());
+        result.setRedirectsExact(stat.policy().countsExact());
+        result.setLastAccess(stat.lastAccess());
+
+        return result;
+    }
+
+    // one url_record row: the same URL with another policy is another short link
+    private record Link(String url, RedirectPolicy policy) {
+        byte[] digest() {
+            return UrlDigest.of(policy.digestInput(url));
+        }
+
+        boolean matches(UrlJdbcRepository.StoredUrl stored) {
+            return url.equals(stored.url()) && policy == stored.policy();
+        }
+    }
 }
@@ -4,6 +4,7 @@ import java.util.Date;
 
 public class UrlStatDTO extends UrlResultDTO {
     private long redirects;
+    private boolean redirectsExact; // false for cacheable redirects, see RedirectPolicy
     private Date lastAccess; // TODO: set normal format
 
     public long getRedirects() {
@@ -14,6 +15,14 @@ public class UrlStatDTO extends UrlResultDTO {
         this.redirects = redirects;
     }
 
+    public boolean isRedirectsExact() {
+        return redirectsExact;
+    }
+
+    public void setRedirectsExact(boolean redirectsExact) {
+        this.redirectsExact = redirectsExact;
+    }
+
     public Date getLastAccess() {
         return lastAccess;
     }
@@ -0,0 +1,24 @@
+package academy.prog;
+
+import java.util.List;
+
+public class UrlStatPageDTO {
+    private List<UrlStatDTO> items;
+    private String next; // pass as ?after= to get the following page, null on the last one
+
+    public List<UrlStatDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<UrlStatDTO> items) {
+        this.items = items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,22 @@
+package academy.prog;
+
+public class UrlTopDTO extends UrlResultDTO {
+    private long redirects; // estimate, never below the real count
+    private long error;     // redirects - error <= real count
+
+    public long getRedirects() {
+        return redirects;
+    }
+
+    public void setRedirects(long redirects) {
+        this.redirects = redirects;
+    }
+
+    public long getError() {
+        return error;
+    }
+
+    public void setError(long error) {
+        this.error = error;
+    }
+}
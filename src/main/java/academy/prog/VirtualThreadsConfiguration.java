@@ -0,0 +1,36 @@
+package academy.prog;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+    happyurl.threads.virtual=true: every request, and so every UrlService
+    call and JDBC wait, runs on its own virtual thread instead of Tomcat's
+    bounded platform thread pool. Needs a Java 21+ runtime; the code is
+    still compiled for 17, hence the reflective lookup.
+ */
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("happyurl.threads.virtual")
+public class VirtualThreadsConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        var executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("happyurl.threads.virtual needs Java 21 or newer, running on "
+                    + Runtime.version(), ex);
+        }
+    }
+}
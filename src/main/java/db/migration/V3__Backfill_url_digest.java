@@ -0,0 +1,54 @@
+package db.migration;
+
+import academy.prog.UrlDigest;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+
+/*
+    Computes url_record.digest for rows created before V2 and stores the
+    normalized URL it was computed from, so that a later shorten of the same
+    URL finds a row whose url equals what it asked for.
+    Rows that duplicate an already backfilled URL keep a null digest:
+    they still redirect, the first (lowest id) row is used for dedup.
+ */
+
+public class V3__Backfill_url_digest extends BaseJavaMigration {
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        var connection = context.getConnection();
+
+        try (var select = connection.prepareStatement(
+                "select id, url from url_record where digest is null and id > ? order by id limit " + BATCH_SIZE);
+             var update = connection.prepareStatement(
+                     "update url_record set digest = ?, url = ? where id = ? " +
+                             "and not exists (select 1 from url_record where digest = ?)")) {
+            long lastId = Long.MIN_VALUE;
+            boolean more = true;
+
+            while (more) {
+                more = false;
+                select.setLong(1, lastId);
+
+                try (var rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        var url = UrlDigest.normalize(rs.getString(2));
+                        var digest = UrlDigest.of(url);
+
+                        // one by one: a later row of the same batch may duplicate an earlier one
+                        update.setBytes(1, digest);
+                        update.setString(2, url);
+                        update.setLong(3, lastId);
+                        update.setBytes(4, digest);
+                        update.executeUpdate();
+                        more = true;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- schema as previously generated by Hibernate from UrlRecord
+
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table url_record (
+    id          bigint       not null,
+    count       bigint       not null,
+    last_access timestamp    not null,
+    url         varchar(255) not null,
+    primary key (id)
+);
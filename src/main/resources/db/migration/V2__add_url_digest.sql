@@ -0,0 +1,6 @@
+-- 128-bit digest of the normalized long URL, see UrlDigest
+-- filled for existing rows by V3__Backfill_url_digest
+
+alter table url_record add column digest binary(16);
+
+create unique index url_record_digest_idx on url_record (digest);
@@ -0,0 +1,11 @@
+-- ids are handed out in blocks from this single row, see IdAllocator
+-- (replaces the per-insert hibernate_sequence round trip)
+
+create table url_id_allocator (
+    next_id bigint not null
+);
+
+insert into url_id_allocator (next_id)
+select coalesce(max(id), 0) + 1 from url_record;
+
+drop sequence hibernate_sequence;
@@ -0,0 +1,13 @@
+-- append-only redirect time series, see ClickTimeSeries
+-- several rows may exist for one bucket, readers sum them up
+-- resolution: 'M' minute, 'H' hour, 'D' day
+
+create table url_click_bucket (
+    url_id       bigint    not null,
+    resolution   char(1)   not null,
+    bucket_start timestamp not null,
+    clicks       bigint    not null
+);
+
+create index url_click_bucket_url_idx on url_click_bucket (url_id, bucket_start);
+create index url_click_bucket_age_idx on url_click_bucket (resolution, bucket_start);
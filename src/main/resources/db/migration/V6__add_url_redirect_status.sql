@@ -0,0 +1,4 @@
+-- HTTP status a short link answers with, see RedirectPolicy
+-- 302 for every existing link
+
+alter table url_record add column redirect_status smallint default 302 not null;
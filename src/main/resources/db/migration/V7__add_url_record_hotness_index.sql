@@ -0,0 +1,4 @@
+-- most redirected (then most recently used) links first without a table scan,
+-- for the startup warm-up (LinkWarmup) and TopLinks reconciliation
+
+create index url_record_hotness_idx on url_record (count desc, last_access desc);
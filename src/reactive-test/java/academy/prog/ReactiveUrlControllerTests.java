@@ -0,0 +1,54 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveUrlControllerTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void shortenThenRedirect() {
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl("https://example.com/reactive");
+
+        var first = shorten(urlDTO);
+        assertEquals(first, shorten(urlDTO));
+
+        webTestClient.get().uri("/my/" + first).exchange()
+                .expectStatus().isFound()
+                .expectHeader().location("https://example.com/reactive");
+        webTestClient.get().uri("/my/zzzzzzzz").exchange()
+                .expectStatus().isNotFound();
+        webTestClient.get().uri("/stat").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[?(@.shortUrl == '" + first + "')]").exists();
+    }
+
+    @Test
+    void permanentLinksAreCacheable() {
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl("https://example.com/reactive");
+        urlDTO.setRedirect(RedirectPolicy.PERMANENT);
+
+        var code = shorten(urlDTO);
+        webTestClient.get().uri("/my/" + code).exchange()
+                .expectStatus().isEqualTo(301)
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "public, max-age=86400");
+    }
+
+    private String shorten(UrlDTO urlDTO) {
+        return webTestClient.post().uri("/shorten").bodyValue(urlDTO).exchange()
+                .expectStatus().isOk()
+                .expectBody(UrlResultDTO.class).returnResult().getResponseBody().getShortUrl();
+    }
+}
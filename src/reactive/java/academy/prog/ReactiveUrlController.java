@@ -0,0 +1,74 @@
+package academy.prog;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+// UrlController's redirect, shorten and stat endpoints on WebFlux, same paths and payloads
+
+@RestController
+@Profile("reactive")
+public class ReactiveUrlController {
+    private final ReactiveUrlService reactiveUrlService;
+    private final ShortCodec shortCodec;
+
+    public ReactiveUrlController(ReactiveUrlService reactiveUrlService, ShortCodec shortCodec) {
+        this.reactiveUrlService = reactiveUrlService;
+        this.shortCodec = shortCodec;
+    }
+
+    @GetMapping("shorten_simple")
+    public Mono<UrlResultDTO> shorten(@RequestParam String url,
+                                      @RequestParam(required = false) RedirectPolicy redirect) {
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl(url);
+        urlDTO.setRedirect(redirect);
+
+        return shorten(urlDTO);
+    }
+
+    @PostMapping("shorten")
+    public Mono<UrlResultDTO> shorten(@RequestBody UrlDTO urlDTO) {
+        return reactiveUrlService.saveUrl(urlDTO).map(id -> {
+            var result = new UrlResultDTO();
+            result.setUrl(urlDTO.getUrl());
+            result.setRedirect(RedirectPolicy.orDefault(urlDTO.getRedirect()));
+            result.setShortUrl(shortCodec.encode(id));
+
+            return result;
+        });
+    }
+
+    @GetMapping("my/{code}")
+    public Mono<ResponseEntity<Void>> redirect(@PathVariable("code") String code) {
+        long id = shortCodec.decode(code);
+        if (id < 0)
+            return Mono.just(ResponseEntity.notFound().build());
+
+        return reactiveUrlService.getTarget(id)
+                .map(target -> {
+                    var headers = new HttpHeaders();
+                    headers.set(HttpHeaders.LOCATION, target.location()); // validated when shortened
+                    headers.set(HttpHeaders.CACHE_CONTROL, target.cacheControl());
+
+                    return new ResponseEntity<Void>(headers, HttpStatus.valueOf(target.policy().status()));
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // a JSON array written as rows arrive
+    @GetMapping("stat")
+    public Flux<UrlStatDTO> stat() {
+        return reactiveUrlService.streamStatistics();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+}
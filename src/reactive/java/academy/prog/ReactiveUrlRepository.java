@@ -0,0 +1,62 @@
+package academy.prog;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+// the statements of UrlJdbcRepository the reactive endpoints need, over R2DBC
+
+@Repository
+@Profile("reactive")
+public class ReactiveUrlRepository {
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUrlRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<UrlJdbcRepository.StoredUrl> findTarget(long id) {
+        return databaseClient.sql("select url, redirect_status from url_record where id = :id")
+                .bind("id", id)
+                .map(row -> new UrlJdbcRepository.StoredUrl(id, row.get(0, String.class),
+                        RedirectPolicy.ofStatus(row.get(1, Short.class))))
+                .one();
+    }
+
+    // same convergence as UrlJdbcRepository.upsert, the driver reports a lost race as an integrity violation
+    public Mono<UrlJdbcRepository.StoredUrl> upsert(String url, RedirectPolicy policy, byte[] digest, long newId) {
+        return databaseClient.sql(UrlJdbcRepository.UPSERT)
+                .bind("digest", digest)
+                .bind("url", url)
+                .bind("status", policy.status())
+                .bind("id", newId)
+                .map(row -> new UrlJdbcRepository.StoredUrl(row.get(0, Long.class), row.get(1, String.class),
+                        RedirectPolicy.ofStatus(row.get(2, Short.class))))
+                .one()
+                .retryWhen(Retry.max(UrlJdbcRepository.UPSERT_ATTEMPTS - 1).filter(DataIntegrityViolationException.class::isInstance));
+    }
+
+    // rows are emitted as they are read, demand from the response propagates down to the driver
+    public Flux<UrlJdbcRepository.UrlStat> findStats() {
+        return databaseClient.sql("select id, url, count, last_access, redirect_status from url_record order by id")
+                .map(row -> new UrlJdbcRepository.UrlStat(
+                        row.get(0, Long.class),
+                        row.get(1, String.class),
+                        row.get(2, Long.class),
+                        toDate(row.get(3, LocalDateTime.class)),
+                        RedirectPolicy.ofStatus(row.get(4, Short.class))))
+                .all();
+    }
+
+    private static Date toDate(LocalDateTime value) {
+        return value == null ? null : Date.from(value.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,112 @@
+package academy.prog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+    UrlService for the reactive profile. Bloom filter, cache and click
+    pipeline are in-memory and shared as they are, only database access
+    goes through R2DBC. Clicks are recorded on the event loop, so
+    happyurl.clicks.backpressure=BLOCK is refused here.
+ */
+
+@Service
+@Profile("reactive")
+public class ReactiveUrlService {
+    private final ReactiveUrlRepository reactiveUrlRepository;
+    private final ClickPipeline clickPipeline;
+    private final UrlCache urlCache;
+    private final MemoryUrlStore memoryUrlStore;
+    private final IssuedIds issuedIds;
+    private final IdAllocator idAllocator;
+    private final ShortCodec shortCodec;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final RedirectTargets redirectTargets;
+
+    public ReactiveUrlService(ReactiveUrlRepository reactiveUrlRepository, ClickPipeline clickPipeline,
+                              UrlCache urlCache, MemoryUrlStore memoryUrlStore, IssuedIds issuedIds, IdAllocator idAllocator,
+                              ShortCodec shortCodec, UrlCanonicalizer urlCanonicalizer,
+                              RedirectTargets redirectTargets,
+                              @Value("${happyurl.clicks.backpressure:DROP}") ClickPipeline.Backpressure backpressure) {
+        if (backpressure == ClickPipeline.Backpressure.BLOCK)
+            throw new IllegalStateException("happyurl.clicks.backpressure=BLOCK would block the event loop, " +
+                    "use DROP with the reactive profile");
+
+        this.reactiveUrlRepository = reactiveUrlRepository;
+        this.clickPipeline = clickPipeline;
+        this.urlCache = urlCache;
+        this.memoryUrlStore = memoryUrlStore;
+        this.issuedIds = issuedIds;
+        this.idAllocator = idAllocator;
+        this.shortCodec = shortCodec;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.redirectTargets = redirectTargets;
+    }
+
+    public Mono<Long> saveUrl(UrlDTO urlDTO) {
+        var url = urlCanonicalizer.canonicalize(urlDTO.getUrl());
+        var policy = RedirectPolicy.orDefault(urlDTO.getRedirect());
+        var digest = UrlDigest.of(policy.digestInput(url));
+
+        // the log append may fsync
+        if (memoryUrlStore.enabled())
+            return Mono.fromCallable(() -> memoryUrlStore.save(url, policy, digest))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnNext(issuedIds::add);
+
+        // a JDBC round trip once per id block, kept off the event loop
+        return Mono.fromCallable(idAllocator::next)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(newId -> reactiveUrlRepository.upsert(url, policy, digest, newId))
+                .map(stored -> {
+                    if (!stored.url().equals(url) || stored.policy() != policy)
+                        throw new IllegalStateException("URL digest collision with record " + stored.id());
+
+                    issuedIds.add(stored.id());
+                    urlCache.put(stored.id(), redirectTargets.of(stored.url(), stored.policy()));
+
+                    return stored.id();
+                });
+    }
+
+    // empty when the link does not exist
+    public Mono<RedirectTarget> getTarget(long id) {
+        var stored = memoryUrlStore.get(id);
+        if (stored != null) {
+            clickPipeline.record(id, System.currentTimeMillis());
+            return Mono.just(stored);
+        }
+
+        if (!issuedIds.mightExist(id) || urlCache.isMissing(id))
+            return Mono.empty();
+
+        var cached = urlCache.getIfPresent(id);
+        var target = cached != null
+                ? Mono.just(cached)
+                : reactiveUrlRepository.findTarget(id)
+                        .map(x -> redirectTargets.of(RedirectLocation.of(x.url()), x.policy()))
+                        .doOnNext(x -> urlCache.put(id, x))
+                        .switchIfEmpty(Mono.fromRunnable(() -> urlCache.putMissing(id)));
+
+        return target.doOnNext(x -> clickPipeline.record(id, System.currentTimeMillis()));
+    }
+
+    public Flux<UrlStatDTO> streamStatistics() {
+        return reactiveUrlRepository.findStats().map(stat -> {
+            var result = new UrlStatDTO();
+
+            result.setUrl(stat.url());
+            result.setShortUrl(shortCodec.encode(stat.id()));
+            result.setRedirect(stat.policy());
+            result.setRedirects(stat.count());
+            result.setRedirectsExact(stat.policy().countsExact());
+            result.setLastAccess(stat.lastAccess());
+
+            return result;
+        });
+    }
+}
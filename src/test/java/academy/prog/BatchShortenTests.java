@@ -0,0 +1,127 @@
+package academy.prog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BatchShortenTests {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @SpyBean
+    private UrlJdbcRepository urlJdbcRepository;
+
+    @Test
+    void resultsFollowTheInputAndDuplicatesShareACode() {
+        var prefix = "https://example.com/batch-" + System.nanoTime();
+        var results = batch(dto(prefix + "/a", null), dto(prefix + "/b", null), dto(prefix + "/a", null),
+                dto(prefix + "/a", RedirectPolicy.PERMANENT));
+
+        assertEquals(List.of(prefix + "/a", prefix + "/b", prefix + "/a", prefix + "/a"),
+                results.stream().map(UrlResultDTO::getUrl).toList());
+        assertEquals(results.get(0).getShortUrl(), results.get(2).getShortUrl());
+        assertNotEquals(results.get(0).getShortUrl(), results.get(1).getShortUrl());
+        assertNotEquals(results.get(0).getShortUrl(), results.get(3).getShortUrl());
+        assertEquals(RedirectPolicy.PERMANENT, results.get(3).getRedirect());
+    }
+
+    @Test
+    void existingLinksAreFoundWithOneLookup() {
+        var url = "https://example.com/batch-existing-" + System.nanoTime();
+        var existing = restTemplate.postForObject("/shorten", dto(url, null), UrlResultDTO.class).getShortUrl();
+
+        var results = batch(dto(url, null), dto(url + "/new", null));
+
+        assertEquals(existing, results.get(0).getShortUrl());
+        verify(urlJdbcRepository, times(1)).findByDigests(any());
+        verify(urlJdbcRepository, times(1)).insertAll(any());
+    }
+
+    @Test
+    void raceWithAnotherShortenFallsBackToUpserts() {
+        var url = "https://example.com/batch-race-" + System.nanoTime();
+        var existing = restTemplate.postForObject("/shorten", dto(url, null), UrlResultDTO.class).getShortUrl();
+
+        // the row appears between the lookup and the insert
+        doReturn(List.of()).when(urlJdbcRepository).findByDigests(any());
+        var results = batch(dto(url + "/new", null), dto(url, null));
+
+        assertEquals(existing, results.get(1).getShortUrl());
+        assertEquals(results.get(0).getShortUrl(),
+                restTemplate.postForObject("/shorten", dto(url + "/new", null), UrlResultDTO.class).getShortUrl());
+    }
+
+    @Test
+    void ndjsonIsAnsweredLineByLine() {
+        var url = "https://example.com/batch-ndjson-" + System.nanoTime();
+        var body = "{\"url\":\"" + url + "/1\"}\n\n{\"url\":\"" + url + "/2\",\"redirect\":\"PERMANENT_308\"}\n";
+
+        var response = restTemplate.postForEntity("/shorten/batch", ndjson(body), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        var lines = response.getBody().lines().toList();
+        assertEquals(2, lines.size());
+        assertEquals(url + "/1", parse(lines.get(0)).getUrl());
+        assertEquals(RedirectPolicy.PERMANENT_308, parse(lines.get(1)).getRedirect());
+    }
+
+    @Test
+    void malformedNdjsonIsABadRequest() {
+        var response = restTemplate.postForEntity("/shorten/batch",
+                ndjson("{\"url\":\"https://example.com/ok\"}\n{\"url\":\n"), String.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    private List<UrlResultDTO> batch(UrlDTO... urlDTOs) {
+        return Arrays.asList(restTemplate.postForObject("/shorten/batch", List.of(urlDTOs), UrlResultDTO[].class));
+    }
+
+    private static HttpEntity<String> ndjson(String body) {
+        var headers = new HttpHeaders();
+        headers.setContentType(NDJSON);
+        headers.setAccept(List.of(NDJSON));
+
+        return new HttpEntity<>(body, headers);
+    }
+
+    private UrlResultDTO parse(String line) {
+        try {
+            return objectMapper.readValue(line, UrlResultDTO.class);
+        } catch (JsonProcessingException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static UrlDTO dto(String url, RedirectPolicy redirect) {
+        var result = new UrlDTO();
+        result.setUrl(url);
+        result.setRedirect(redirect);
+
+        return result;
+    }
+}
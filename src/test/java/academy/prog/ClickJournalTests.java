@@ -0,0 +1,98 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClickJournalTests {
+    private static final int SEGMENT_SIZE = 4 * 16; // four clicks
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEverythingAfterTheCheckpoint() throws IOException {
+        var journal = new ClickJournal(dir, SEGMENT_SIZE);
+        long start = journal.open((id, timestamp) -> { });
+        for (int i = 1; i <= 6; i++)
+            assertTrue(journal.offer(i, 100 + i));
+
+        assertEquals(6, journal.drain((id, timestamp) -> { }, 100));
+        journal.sync();
+        journal.checkpoint(start + 3);
+
+        var replayed = new ArrayList<Long>();
+        var restarted = new ClickJournal(dir, SEGMENT_SIZE);
+        restarted.open((id, timestamp) -> {
+            assertEquals(100 + id, timestamp);
+            replayed.add(id);
+        });
+
+        assertEquals(List.of(4L, 5L, 6L), replayed);
+    }
+
+    @Test
+    void checkpointDeletesTheSegmentsBelowIt() throws IOException {
+        var journal = new ClickJournal(dir, SEGMENT_SIZE);
+        journal.open((id, timestamp) -> { });
+        for (int i = 1; i <= 10; i++)
+            journal.offer(i, i);
+        assertEquals(3, segments().size());
+
+        journal.drain((id, timestamp) -> { }, 100);
+        journal.checkpoint(journal.consumed() - 2); // inside the third segment
+        assertEquals(List.of("clicks-00000000000000000002.journal"), segments());
+    }
+
+    @Test
+    void replaySkipsTornAndUnwrittenSlots() throws IOException {
+        var segment = ByteBuffer.allocate(SEGMENT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        segment.putLong(0, 1).putLong(8, 11);
+        segment.putLong(16, 2); // torn: id written, timestamp not
+        segment.putLong(48, 4).putLong(56, 14); // slot 2 never written
+        Files.write(dir.resolve("clicks-00000000000000000000.journal"), segment.array());
+
+        var replayed = new ArrayList<Long>();
+        new ClickJournal(dir, SEGMENT_SIZE).open((id, timestamp) -> replayed.add(id));
+
+        assertEquals(List.of(1L, 4L), replayed);
+    }
+
+    @Test
+    void drainSkipsSlotsAbandonedByAFailedAppend() throws IOException {
+        var journal = new ClickJournal(dir, SEGMENT_SIZE);
+        journal.open((id, timestamp) -> { });
+        for (int i = 1; i <= 4; i++)
+            assertTrue(journal.offer(i, i));
+
+        // the next segment can't be mapped
+        Files.createDirectory(dir.resolve("clicks-00000000000000000001.journal"));
+        for (int i = 5; i <= 8; i++)
+            assertFalse(journal.offer(i, i));
+        assertTrue(journal.offer(9, 9));
+
+        var drained = new ArrayList<Long>();
+        for (int i = 0; i < 10; i++)
+            journal.drain((id, timestamp) -> drained.add(id), 3);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 9L), drained);
+        assertEquals(9, journal.consumed());
+    }
+
+    private List<String> segments() throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.map(x -> x.getFileName().toString()).filter(x -> x.endsWith(".journal")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClickRingBufferTests {
+
+    @Test
+    void rejectsWhenFull() {
+        var buffer = new ClickRingBuffer(4);
+        for (int i = 0; i < 4; i++)
+            assertTrue(buffer.offer(i, i));
+
+        assertFalse(buffer.offer(4, 4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(2, buffer.drain((id, timestamp) -> { }, 2));
+        assertTrue(buffer.offer(4, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ClickRingBuffer(3));
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200_000;
+        var buffer = new ClickRingBuffer(1024);
+
+        var threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            var thread = new Thread(() -> {
+                for (int i = 1; i <= perProducer; i++)
+                    while (!buffer.offer(i, -i))
+                        Thread.onSpinWait();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long[] consumed = new long[2];
+        long expected = (long) producers * perProducer;
+        while (consumed[0] < expected) {
+            buffer.drain((id, timestamp) -> {
+                assertEquals(id, -timestamp);
+                consumed[0]++;
+                consumed[1] += id;
+            }, 256);
+        }
+
+        for (var thread : threads)
+            thread.join();
+
+        assertEquals((long) producers * perProducer * (perProducer + 1) / 2, consumed[1]);
+        assertEquals(0, buffer.size());
+    }
+}
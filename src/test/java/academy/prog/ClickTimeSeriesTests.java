@@ -0,0 +1,98 @@
+package academy.prog;
+
+import academy.prog.ClickBucketRepository.Bucket;
+import academy.prog.ClickBucketRepository.Resolution;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ClickTimeSeriesTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private RedirectCounter redirectCounter;
+
+    @Autowired
+    private ClickTimeSeries clickTimeSeries;
+
+    @Autowired
+    private ShortCodec shortCodec;
+
+    @Autowired
+    private ClickBucketRepository clickBucketRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void clicksAreBucketedAtTheirOwnMinute() {
+        var code = shorten("https://example.com/timeseries-" + System.nanoTime());
+
+        var hour = Instant.now().minus(Duration.ofHours(3)).truncatedTo(ChronoUnit.HOURS);
+        // replayed clicks from two minutes, recorded long after they happened
+        record(code, hour.plusSeconds(5), 2);
+        record(code, hour.plusSeconds(65), 3);
+        clickTimeSeries.persistClosed();
+
+        var from = hour.minus(Duration.ofHours(1));
+        var to = hour.plus(Duration.ofHours(2));
+        assertEquals(List.of(new Point(hour, 2), new Point(hour.plusSeconds(60), 3)),
+                timeSeries(code, Resolution.MINUTE, from, to));
+        assertEquals(List.of(new Point(hour, 5)), timeSeries(code, Resolution.HOUR, from, to));
+    }
+
+    @Test
+    void oldMinutesAreRolledUpIntoHours() {
+        long id = 1L << 40; // no such link, buckets only
+        var hour = Instant.now().minus(Duration.ofDays(5)).truncatedTo(ChronoUnit.HOURS);
+        clickBucketRepository.append(List.of(
+                new Bucket(id, Resolution.MINUTE, hour.toEpochMilli(), 1),
+                new Bucket(id, Resolution.MINUTE, hour.plusSeconds(600).toEpochMilli(), 2),
+                new Bucket(id, Resolution.MINUTE, hour.plusSeconds(3600).toEpochMilli(), 4)));
+
+        clickTimeSeries.downsample();
+
+        assertEquals(List.of("H"), jdbcTemplate.queryForList(
+                "select distinct resolution from url_click_bucket where url_id = ?", String.class, id));
+        var buckets = clickTimeSeries.find(id, Resolution.MINUTE, Date.from(hour), Date.from(hour.plus(Duration.ofDays(1))));
+        assertEquals(List.of(hour.toEpochMilli(), hour.plusSeconds(3600).toEpochMilli()),
+                buckets.stream().map(Bucket::start).toList());
+        assertEquals(List.of(3L, 4L), buckets.stream().map(Bucket::clicks).toList());
+    }
+
+    private String shorten(String url) {
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl(url);
+
+        return restTemplate.postForObject("/shorten", urlDTO, UrlResultDTO.class).getShortUrl();
+    }
+
+    private void record(String code, Instant at, int clicks) {
+        for (int i = 0; i < clicks; i++)
+            redirectCounter.record(shortCodec.decode(code), at.toEpochMilli());
+    }
+
+    private List<Point> timeSeries(String code, Resolution resolution, Instant from, Instant to) {
+        var buckets = restTemplate.getForObject("/stat/{code}/timeseries?resolution={resolution}&from={from}&to={to}",
+                ClickBucketDTO[].class, code, resolution, from, to);
+
+        return Arrays.stream(buckets).map(x -> new Point(x.getStart().toInstant(), x.getRedirects())).toList();
+    }
+
+    private record Point(Instant start, long redirects) {
+    }
+}
@@ -0,0 +1,54 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdAllocatorTests {
+    private final List<Integer> reservations = new ArrayList<>();
+    private final UrlJdbcRepository repository = new UrlJdbcRepository(null, null) {
+        private long nextId = 1;
+
+        @Override
+        public long allocateIds(int count) {
+            reservations.add(count);
+            nextId += count;
+            return nextId - count;
+        }
+    };
+
+    @Test
+    void idsComeFromOneBlockPerReservation() {
+        var allocator = new IdAllocator(repository, 3, Duration.ofHours(1));
+
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5}, LongStream.range(0, 5).map(x -> allocator.next()).toArray());
+        assertEquals(List.of(3, 3), reservations);
+    }
+
+    @Test
+    void expiredBlockIsAbandoned() throws InterruptedException {
+        var allocator = new IdAllocator(repository, 10, Duration.ofMillis(20));
+
+        assertEquals(1, allocator.next());
+        Thread.sleep(50);
+        assertEquals(11, allocator.next()); // 2..10 are never handed out
+        assertEquals(List.of(10, 10), reservations);
+    }
+
+    @Test
+    void bigBatchGetsADedicatedRange() {
+        var allocator = new IdAllocator(repository, 10, Duration.ofHours(1));
+        assertEquals(1, allocator.next());
+
+        assertArrayEquals(LongStream.rangeClosed(11, 35).toArray(), allocator.next(25));
+        assertEquals(2, allocator.next()); // the shared block is untouched
+        assertArrayEquals(new long[]{3, 4}, allocator.next(2));
+        assertEquals(List.of(10, 25), reservations);
+    }
+}
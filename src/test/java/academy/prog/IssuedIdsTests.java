@@ -0,0 +1,35 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IssuedIdsTests {
+
+    @Test
+    void bloomFilterIsPassThroughUntilComplete() {
+        var issuedIds = new IssuedIds(1000, 0.01);
+        issuedIds.add(1);
+        assertTrue(issuedIds.mightExist(42));
+
+        issuedIds.complete(100);
+        assertTrue(issuedIds.mightExist(1));
+        assertFalse(issuedIds.mightExist(42));
+        assertTrue(issuedIds.mightExist(142)); // above the high-water mark, e.g. another node's link
+
+        issuedIds.raise(200);
+        assertFalse(issuedIds.mightExist(142));
+    }
+
+    @Test
+    void highWaterMarkNeverGoesDown() {
+        var issuedIds = new IssuedIds(1000, 0.01);
+        issuedIds.complete(100);
+
+        issuedIds.raise(50);
+        assertEquals(100, issuedIds.highWater());
+        assertTrue(issuedIds.mightExist(100));
+    }
+}
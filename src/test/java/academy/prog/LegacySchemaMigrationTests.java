@@ -0,0 +1,69 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// a url_record created by Hibernate before Flyway, with duplicate URLs in it
+@SpringBootTest
+class LegacySchemaMigrationTests {
+    private static final String URL = "jdbc:h2:mem:legacy-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UrlService urlService;
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) throws SQLException {
+        try (var connection = DriverManager.getConnection(URL, "sa", "");
+             var statement = connection.createStatement()) {
+            statement.execute("create sequence hibernate_sequence start with 4 increment by 1");
+            statement.execute("create table url_record (id bigint not null, count bigint not null, " +
+                    "last_access timestamp not null, url varchar(255) not null, primary key (id))");
+            statement.execute("insert into url_record values " +
+                    "(1, 5, now(), 'https://example.com/a'), " +
+                    "(2, 7, now(), ' https://example.com/a '), " +
+                    "(3, 0, now(), 'https://example.com/b'), " +
+                    "(4, 1, now(), ' https://example.com/c ')");
+        }
+
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    void digestsAreBackfilled() {
+        assertArrayEquals(UrlDigest.of("https://example.com/a"), digest(1));
+        assertNull(digest(2)); // duplicate of 1, still redirects
+        assertArrayEquals(UrlDigest.of("https://example.com/b"), digest(3));
+
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl("https://example.com/a");
+        assertEquals(1, urlService.saveUrl(urlDTO));
+
+        // stored with surrounding whitespace, found again under its normalized spelling
+        assertArrayEquals(UrlDigest.of("https://example.com/c"), digest(4));
+        assertEquals("https://example.com/c",
+                jdbcTemplate.queryForObject("select url from url_record where id = 4", String.class));
+        urlDTO.setUrl("https://example.com/c");
+        assertEquals(4, urlService.saveUrl(urlDTO));
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from \"flyway_schema_history\" where \"type\" = 'BASELINE'", Integer.class));
+    }
+
+    private byte[] digest(long id) {
+        return jdbcTemplate.queryForObject("select digest from url_record where id = ?", byte[].class, id);
+    }
+}
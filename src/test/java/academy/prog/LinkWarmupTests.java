@@ -0,0 +1,115 @@
+package academy.prog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LinkWarmupTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void readinessFollowsTheWarmup() throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 10_000;
+        var status = HttpStatus.SERVICE_UNAVAILABLE;
+        while (status != HttpStatus.OK && System.currentTimeMillis() < deadline) {
+            status = restTemplate.getForEntity("/actuator/health/readiness", String.class).getStatusCode();
+            Thread.sleep(50);
+        }
+
+        assertEquals(HttpStatus.OK, status);
+    }
+
+    @Test
+    void readyOnceTheHotLinksAreCachedBeforeTheTailIsLoaded() throws InterruptedException {
+        var repository = mock(UrlJdbcRepository.class);
+        var hotQuery = new CountDownLatch(1);
+        var tailScan = new CountDownLatch(1);
+        when(repository.findHottest(anyInt())).thenAnswer(x -> {
+            hotQuery.await();
+            return List.of(url(7));
+        });
+        when(repository.readNextId()).thenReturn(1000L);
+        when(repository.findIdRange()).thenAnswer(x -> {
+            tailScan.await();
+            return new UrlJdbcRepository.IdRange(1, 10);
+        });
+        when(repository.findUrls(eq(0L), anyLong(), anyInt()))
+                .thenReturn(LongStream.rangeClosed(1, 10).mapToObj(LinkWarmupTests::url).toList());
+
+        var registry = new SimpleMeterRegistry();
+        var redirectTargets = new RedirectTargets(Duration.ofDays(1));
+        var offHeap = new OffHeapUrlCache(true, 1000, DataSize.ofKilobytes(64), redirectTargets, registry);
+        var urlCache = new UrlCache(1000, Duration.ofHours(1), Duration.ofSeconds(30), offHeap, registry);
+        var issuedIds = new IssuedIds(1000, 0.01);
+        var warmup = new LinkWarmup(repository, urlCache, offHeap, issuedIds, redirectTargets, mock(MemoryUrlStore.class),
+                true, 100, 2, 100,
+                Duration.ZERO, Duration.ofMinutes(10));
+
+        warmup.afterSingletonsInstantiated();
+        assertEquals(Status.OUT_OF_SERVICE, warmup.health().getStatus());
+
+        hotQuery.countDown();
+        await(() -> warmup.health().getStatus().equals(Status.UP));
+        assertNotNull(urlCache.getIfPresent(7));
+        assertNull(offHeap.get(3));
+        assertTrue(issuedIds.mightExist(999)); // Bloom filter still pass-through
+
+        tailScan.countDown();
+        await(issuedIds::isComplete);
+        assertNotNull(offHeap.get(3));
+        assertTrue(issuedIds.mightExist(3));
+        assertFalse(issuedIds.mightExist(999));
+
+        // another node shortened 1500 meanwhile
+        assertTrue(issuedIds.mightExist(1500));
+        when(repository.readNextId()).thenReturn(2000L);
+        when(repository.findIds(eq(999L), anyLong(), anyInt())).thenReturn(List.of(1500L));
+        warmup.refresh();
+        assertEquals(2000, issuedIds.highWater());
+        assertTrue(issuedIds.mightExist(1500));
+        assertFalse(issuedIds.mightExist(1600));
+
+        // 1200 was reserved before the last mark but committed only now
+        assertFalse(issuedIds.mightExist(1200));
+        when(repository.findIds(eq(999L), anyLong(), anyInt())).thenReturn(List.of(1200L, 1500L));
+        warmup.refresh();
+        assertTrue(issuedIds.mightExist(1200));
+    }
+
+    private static UrlJdbcRepository.StoredUrl url(long id) {
+        return new UrlJdbcRepository.StoredUrl(id, "https://example.com/" + id, RedirectPolicy.TRACKED);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,128 @@
+package academy.prog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryUrlStoreTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void batchIsDeduplicatedInInputOrder() {
+        var store = store(new Database());
+
+        var ids = store.saveAll(List.of(link("https://example.com/a"), link("https://example.com/b"),
+                link("https://example.com/a")));
+
+        assertEquals(ids[0], ids[2]);
+        assertNotEquals(ids[0], ids[1]);
+        assertEquals(ids[1], store.save("https://example.com/b", RedirectPolicy.TRACKED,
+                link("https://example.com/b").digest()));
+    }
+
+    @Test
+    void snapshotAndLogAreRecoveredAfterACrash() throws IOException {
+        var database = new Database();
+        var store = store(database);
+        var ids = store.saveAll(List.of(link("https://example.com/1"), link("https://example.com/2")));
+        store.snapshot();
+        long logged = store.save("https://example.com/3", RedirectPolicy.PERMANENT,
+                UrlDigest.of(RedirectPolicy.PERMANENT.digestInput("https://example.com/3")));
+        // no shutdown(): the third link is only in the log
+
+        assertEquals(2, database.rows.size());
+        var restarted = store(database);
+
+        assertEquals("https://example.com/1", restarted.get(ids[0]).location());
+        assertEquals("https://example.com/2", restarted.get(ids[1]).location());
+        assertEquals(RedirectPolicy.PERMANENT, restarted.get(logged).policy());
+        assertArrayEquals(ids, restarted.saveAll(List.of(link("https://example.com/1"), link("https://example.com/2"))));
+
+        restarted.flush();
+        assertEquals("https://example.com/3", database.rows.get(logged).url());
+    }
+
+    @Test
+    void writeBehindRetriesUntilTheDatabaseIsBack() {
+        var database = new Database();
+        var store = store(database);
+        var ids = store.saveAll(List.of(link("https://example.com/x"), link("https://example.com/y")));
+        assertTrue(database.rows.isEmpty());
+
+        database.down = true;
+        store.flush();
+        assertTrue(database.rows.isEmpty());
+
+        database.down = false;
+        store.flush();
+        assertEquals(List.of(ids[0], ids[1]), List.copyOf(database.rows.keySet()));
+    }
+
+    private MemoryUrlStore store(Database database) {
+        var idAllocator = new IdAllocator(database, 10, Duration.ofHours(1));
+        var store = new MemoryUrlStore(true, 100, DataSize.ofKilobytes(64), dir, true, 100, database, idAllocator,
+                new RedirectTargets(Duration.ofDays(1)), new SimpleMeterRegistry());
+        store.afterSingletonsInstantiated();
+
+        return store;
+    }
+
+    private static MemoryUrlStore.NewLink link(String url) {
+        return new MemoryUrlStore.NewLink(url, RedirectPolicy.TRACKED, UrlDigest.of(RedirectPolicy.TRACKED.digestInput(url)));
+    }
+
+    // url_record and url_id_allocator
+    private static class Database extends UrlJdbcRepository {
+        final Map<Long, NewUrl> rows = new TreeMap<>();
+        long nextId = 1;
+        boolean down;
+
+        Database() {
+            super(null, null);
+        }
+
+        @Override
+        public long allocateIds(int count) {
+            nextId += count;
+            return nextId - count;
+        }
+
+        @Override
+        public long count() {
+            return rows.size();
+        }
+
+        @Override
+        public void forEachUrl(Consumer<NewUrl> consumer) {
+            rows.values().forEach(consumer);
+        }
+
+        @Override
+        public void insertAll(List<NewUrl> urls) {
+            if (down)
+                throw new DataAccessResourceFailureException("down");
+            if (urls.stream().anyMatch(x -> rows.containsKey(x.id())))
+                throw new DuplicateKeyException("url_record");
+
+            urls.forEach(x -> rows.put(x.id(), x));
+        }
+    }
+}
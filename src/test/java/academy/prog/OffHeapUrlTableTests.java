@@ -0,0 +1,61 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapUrlTableTests {
+
+    @Test
+    void putGetReplace() {
+        var table = new OffHeapUrlTable(1000, 1 << 16, true);
+
+        for (long id = 1; id <= 500; id++)
+            assertTrue(table.put(id, "https://example.com/" + id, (int) (id % 3)));
+        assertTrue(table.put(7, "https://example.com/überall", 2));
+
+        assertEquals(new OffHeapUrlTable.Entry("https://example.com/1", 1), table.get(1));
+        assertEquals(new OffHeapUrlTable.Entry("https://example.com/überall", 2), table.get(7));
+        assertNull(table.get(501));
+        assertNull(table.get(0));
+        assertEquals(500, table.entries());
+        assertTrue(table.liveBytes() < table.usedBytes());
+    }
+
+    @Test
+    void compactionKeepsRecentlyReadEntries() {
+        var table = new OffHeapUrlTable(1000, 100 * 10, true); // room for 100 values of 10 bytes
+
+        for (long id = 1; id <= 100; id++)
+            assertTrue(table.put(id, "0123456789", 0));
+        for (long id = 1; id <= 100; id += 2)
+            assertNotNull(table.get(id));
+
+        assertTrue(table.put(101, "0123456789", 0));
+
+        assertEquals(1, table.compactions());
+        for (long id = 1; id <= 100; id++)
+            assertEquals(id % 2 == 1, table.get(id) != null);
+        assertEquals("0123456789", table.get(101).value());
+        assertEquals(51 * 10, table.usedBytes());
+    }
+
+    @Test
+    void withoutEvictionOnlyGarbageIsReclaimed() {
+        var table = new OffHeapUrlTable(1000, 100, false);
+
+        for (int i = 0; i < 10; i++)
+            assertTrue(table.put(1, "0123456789", i));
+        assertTrue(table.put(2, "0123456789", 0));
+        assertEquals(9, table.get(1).tag());
+
+        for (long id = 3; id <= 10; id++)
+            assertTrue(table.put(id, "0123456789", 0));
+        assertFalse(table.put(11, "0123456789", 0));
+        assertEquals(10, table.entries());
+    }
+}
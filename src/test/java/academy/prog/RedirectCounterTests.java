@@ -0,0 +1,111 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedirectCounterTests {
+
+    @Test
+    void retiredCountersAreReplacedNotLost() {
+        var flushed = new ArrayList<RedirectCounter.Delta>();
+        var counter = counter(flushed::addAll);
+
+        counter.record(1, 10);
+        counter.record(1, 20);
+        assertTrue(counter.flushPending());
+        assertEquals(List.of(new RedirectCounter.Delta(1, 2, 20)), flushed);
+
+        counter.flushPending(); // idle: retired and removed
+        counter.record(1, 30);
+        flushed.clear();
+        counter.flushPending();
+        assertEquals(List.of(new RedirectCounter.Delta(1, 1, 30)), flushed);
+    }
+
+    @Test
+    void concurrentFlushesCountEveryClickOnce() throws InterruptedException {
+        int clicks = 1_000_000;
+        var total = new AtomicLong();
+        var counter = counter(deltas -> deltas.forEach(x -> total.addAndGet(x.count())));
+
+        var done = new AtomicBoolean();
+        var flusher = new Thread(() -> {
+            while (!done.get())
+                counter.flushPending();
+        });
+        flusher.start();
+
+        // few ids, so counters are retired and recreated all the time
+        for (int i = 0; i < clicks; i++)
+            counter.record(i % 3, i);
+
+        done.set(true);
+        flusher.join();
+        counter.flushPending();
+
+        assertEquals(clicks, total.get());
+    }
+
+    @Test
+    void reconcileWaitsForTheFlushToOfferItsDeltas() throws InterruptedException {
+        var persisted = new AtomicLong();
+        var reconciling = new Thread[1];
+        var counter = new RedirectCounter[1];
+        var repository = new UrlJdbcRepository(null, null) {
+            @Override
+            public List<RedirectCounter.Delta> addRedirects(List<RedirectCounter.Delta> deltas) {
+                deltas.forEach(x -> persisted.addAndGet(x.count()));
+                // committed, not yet offered to the sketch
+                reconciling[0] = new Thread(counter[0]::reconcileTopLinks);
+                reconciling[0].start();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of();
+            }
+
+            @Override
+            public List<SpaceSaving.Estimate> findMostRedirected(int limit) {
+                return List.of(new SpaceSaving.Estimate(1, persisted.get(), 0));
+            }
+        };
+        var topLinks = new TopLinks(10, repository);
+        counter[0] = new RedirectCounter(repository, topLinks,
+                new ClickTimeSeries(null, Duration.ofDays(2), Duration.ofDays(90), Duration.ofDays(3650)));
+
+        counter[0].record(1, 10);
+        counter[0].record(1, 20);
+        counter[0].flushPending();
+        reconciling[0].join();
+
+        assertEquals(List.of(new SpaceSaving.Estimate(1, 2, 0)), topLinks.top(10));
+    }
+
+    private interface Sink {
+        void accept(List<RedirectCounter.Delta> deltas);
+    }
+
+    // no mocks: they would record every one of a million invocations
+    private static RedirectCounter counter(Sink sink) {
+        var repository = new UrlJdbcRepository(null, null) {
+            @Override
+            public List<RedirectCounter.Delta> addRedirects(List<RedirectCounter.Delta> deltas) {
+                sink.accept(deltas);
+                return List.of();
+            }
+        };
+        var timeSeries = new ClickTimeSeries(null, Duration.ofDays(2), Duration.ofDays(90), Duration.ofDays(3650));
+
+        return new RedirectCounter(repository, new TopLinks(10, repository), timeSeries);
+    }
+}
@@ -0,0 +1,63 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class RedirectFilterTests {
+    private final UrlService urlService = mock(UrlService.class);
+    private final ShortCodec shortCodec = new ShortCodec(false, 35, 0);
+    private final RedirectFilter filter = new RedirectFilter(urlService, shortCodec);
+
+    @Test
+    void cachedLinkIsAnsweredByTheFilter() throws ServletException, IOException {
+        when(urlService.getCachedTarget(42)).thenReturn(
+                new RedirectTargets(Duration.ofDays(1)).of("https://example.com/", RedirectPolicy.PERMANENT_308));
+        var chain = new MockFilterChain();
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/my/" + shortCodec.encode(42)), response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(308, response.getStatus());
+        assertEquals("https://example.com/", response.getHeader("Location"));
+        assertEquals("public, max-age=86400", response.getHeader("Cache-Control"));
+        assertEquals(0, response.getContentLength());
+    }
+
+    @Test
+    void everythingElseFallsThrough() throws ServletException, IOException {
+        assertFallsThrough(new MockHttpServletRequest("GET", "/my/" + shortCodec.encode(7))); // cache miss
+        assertFallsThrough(new MockHttpServletRequest("GET", "/my/"));
+        assertFallsThrough(new MockHttpServletRequest("GET", "/my/a/b"));
+        assertFallsThrough(new MockHttpServletRequest("GET", "/my/not-a-code"));
+        assertFallsThrough(new MockHttpServletRequest("HEAD", "/my/" + shortCodec.encode(42)));
+
+        // only the miss was looked up
+        verify(urlService).getCachedTarget(7);
+        verifyNoMoreInteractions(urlService);
+    }
+
+    private void assertFallsThrough(MockHttpServletRequest request) throws ServletException, IOException {
+        var chain = new MockFilterChain();
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertNull(response.getHeader("Location"));
+    }
+}
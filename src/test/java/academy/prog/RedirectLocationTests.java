@@ -0,0 +1,41 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RedirectLocationTests {
+
+    @Test
+    void validUrlsAreKeptAndEncodedToAscii() {
+        assertEquals("https://example.com/a?b=1#c", RedirectLocation.of("https://example.com/a?b=1#c"));
+        assertEquals("http://example.com/%C3%BCber", RedirectLocation.of("http://example.com/über"));
+        assertEquals("HTTPS://example.com", RedirectLocation.of("HTTPS://example.com"));
+    }
+
+    @Test
+    void unicodeHostsBecomePunycode() {
+        assertEquals("https://xn--bcher-kva.de/x", RedirectLocation.of("https://bücher.de/x"));
+        assertEquals("https://user@xn--bcher-kva.de:8443/%C3%BC?q#f", RedirectLocation.of("https://user@bücher.de:8443/ü?q#f"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("https://" + "ü".repeat(70) + ".de/"));
+    }
+
+    @Test
+    void charactersBrowsersEscapeAreEncoded() {
+        assertEquals("https://example.com/a%20b?c=%7B%7C%7D", RedirectLocation.of("https://example.com/a b?c={|}"));
+        assertEquals("https://example.com/%22%3C%3E%5C%5E%60", RedirectLocation.of("https://example.com/\"<>\\^`"));
+    }
+
+    @Test
+    void urlsThatCannotBeRedirectedToAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("https://exa mple.com/"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("https://example.com/%zz"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("https://example.com/\r\nSet-Cookie: a=b"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("example.com/a"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("javascript:alert(1)"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("ftp://example.com/"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("https:///path"));
+        assertThrows(IllegalArgumentException.class, () -> RedirectLocation.of("https://example.com/" + "a".repeat(255)));
+    }
+}
@@ -0,0 +1,83 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// the servlet stack end to end, redirects not followed
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RedirectResponseTests {
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ShortCodec shortCodec;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void eachPolicyHasItsStatusAndCacheControl() throws Exception {
+        assertRedirect(shorten("https://example.com/tracked-" + System.nanoTime(), RedirectPolicy.TRACKED),
+                302, "no-cache, no-store, must-revalidate");
+        assertRedirect(shorten("https://example.com/permanent-" + System.nanoTime(), RedirectPolicy.PERMANENT),
+                301, "public, max-age=86400");
+        assertRedirect(shorten("https://example.com/permanent-308-" + System.nanoTime(), RedirectPolicy.PERMANENT_308),
+                308, "public, max-age=86400");
+    }
+
+    @Test
+    void uncachedLinkIsAnsweredByTheController() throws Exception {
+        long id = 1L << 41; // above every allocated id, not in any cache
+        var url = "https://example.com/uncached-" + System.nanoTime();
+        jdbcTemplate.update("insert into url_record (id, count, last_access, url, digest, redirect_status) " +
+                "values (?, 0, now(), ?, ?, 308)", id, url, UrlDigest.of(RedirectPolicy.PERMANENT_308.digestInput(url)));
+
+        var response = get(shortCodec.encode(id));
+
+        assertEquals(308, response.statusCode());
+        assertEquals(url, response.headers().firstValue("Location").orElse(null));
+        assertEquals("public, max-age=86400", response.headers().firstValue("Cache-Control").orElse(null));
+    }
+
+    @Test
+    void unknownCodeIsNotFound() throws Exception {
+        assertEquals(404, get(shortCodec.encode((1L << 41) + 1)).statusCode());
+    }
+
+    private String shorten(String url, RedirectPolicy redirect) {
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl(url);
+        urlDTO.setRedirect(redirect);
+
+        return restTemplate.postForObject("/shorten", urlDTO, UrlResultDTO.class).getShortUrl();
+    }
+
+    private void assertRedirect(String code, int status, String cacheControl) throws Exception {
+        var response = get(code);
+
+        assertEquals(status, response.statusCode());
+        assertEquals(cacheControl, response.headers().firstValue("Cache-Control").orElse(null));
+    }
+
+    private HttpResponse<Void> get(String code) throws IOException, InterruptedException {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/my/" + code)).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+}
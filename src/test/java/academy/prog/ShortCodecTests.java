@@ -0,0 +1,76 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShortCodecTests {
+    private final ShortCodec plain = new ShortCodec(false, 35, 0);
+    private final ShortCodec scrambled = new ShortCodec(true, 35, 0x5EED);
+
+    @Test
+    void base62RoundTrip() {
+        assertEquals("0", Base62.encode(0));
+        assertEquals("z", Base62.encode(61));
+        assertEquals("10", Base62.encode(62));
+        assertEquals(Long.MAX_VALUE, Base62.decode(Base62.encode(Long.MAX_VALUE)));
+
+        for (int i = 0; i < 10_000; i++) {
+            long id = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+            assertEquals(id, plain.decode(plain.encode(id)));
+        }
+    }
+
+    @Test
+    void invalidCodesDecodeToMinusOne() {
+        assertEquals(-1, Base62.decode(""));
+        assertEquals(-1, Base62.decode("abc-"));
+        assertEquals(-1, Base62.decode("zzzzzzzzzzz")); // > Long.MAX_VALUE
+        assertEquals(-1, Base62.decode("zzzzzzzzzzzz"));
+        assertEquals(-1, Base62.decode("ä"));
+        assertEquals(-1, Base62.decode("01")); // "1"
+        assertEquals(-1, scrambled.decode("0" + scrambled.encode(42)));
+        assertEquals(0, Base62.decode("0"));
+    }
+
+    @Test
+    void scramblingIsABijection() {
+        var codes = new HashSet<String>();
+        for (long id = 1; id <= 100_000; id++) {
+            var code = scrambled.encode(id);
+            assertTrue(codes.add(code));
+            assertEquals(id, scrambled.decode(code));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            long id = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+            assertEquals(id, scrambled.decode(scrambled.encode(id)));
+        }
+    }
+
+    @Test
+    void scrambledCodesStayShort() {
+        for (int i = 0; i < 10_000; i++) {
+            long id = ThreadLocalRandom.current().nextLong(1L << 35);
+            assertTrue(scrambled.encode(id).length() <= 6);
+        }
+        assertEquals(Base62.encode(1L << 35), scrambled.encode(1L << 35)); // beyond the range
+    }
+
+    @Test
+    void everyDomainWidthIsPermuted() {
+        for (int bits : new int[]{15, 16}) {
+            var codec = new ShortCodec(true, bits, 0x5EED);
+            var seen = new HashSet<Long>();
+            for (long id = 0; id < 1L << bits; id++) {
+                long x = codec.scramble(id);
+                assertTrue(x < 1L << bits && seen.add(x));
+                assertEquals(id, codec.unscramble(x));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ShortenConcurrencyTests {
+    private static final int REQUESTS = 2000;
+    private static final int THREADS = 64;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Test
+    void concurrentDuplicateShortensConvergeOnOneId() throws Exception {
+        var url = "https://example.com/concurrent-" + System.nanoTime();
+        var urlDTO = new UrlDTO();
+        urlDTO.setUrl(url);
+
+        var executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            var tasks = new ArrayList<Callable<String>>();
+            for (int i = 0; i < REQUESTS; i++)
+                tasks.add(() -> restTemplate.postForObject("/shorten", urlDTO, UrlResultDTO.class).getShortUrl());
+
+            var shortUrls = new HashSet<String>();
+            for (Future<String> future : executor.invokeAll(tasks))
+                shortUrls.add(future.get());
+
+            assertEquals(1, shortUrls.size());
+        } finally {
+            executor.shutdown();
+        }
+
+        var rows = urlRepository.findAll().stream()
+                .filter(x -> x.getUrl().equals(url))
+                .count();
+        assertEquals(1, rows);
+    }
+}
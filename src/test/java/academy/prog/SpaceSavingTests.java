@@ -0,0 +1,76 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SpaceSavingTests {
+
+    @Test
+    void estimatesStayWithinTheErrorBound() {
+        int capacity = 50;
+        var sketch = new SpaceSaving(capacity);
+        var exact = new HashMap<Long, Long>();
+        var random = new Random(42);
+
+        long total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // skewed: a few heavy hitters over a long tail
+            long id = random.nextInt(10) < 5 ? random.nextInt(5) : 5 + random.nextInt(5000);
+            long weight = 1 + random.nextInt(3);
+            sketch.offer(id, weight);
+            exact.merge(id, weight, Long::sum);
+            total += weight;
+        }
+
+        var top = sketch.top(capacity);
+        assertEquals(capacity, top.size());
+        for (var estimate : top) {
+            long real = exact.get(estimate.id());
+            assertTrue(estimate.count() >= real);
+            assertTrue(estimate.count() - estimate.error() <= real);
+            assertTrue(estimate.error() <= total / capacity);
+        }
+
+        for (int i = 0; i < 5; i++)
+            assertTrue(top.get(i).id() < 5, "heavy hitters first");
+    }
+
+    @Test
+    void newIdTakesOverTheSmallestCounter() {
+        var sketch = new SpaceSaving(2);
+        sketch.offer(1, 10);
+        sketch.offer(2, 3);
+        sketch.offer(3, 1);
+
+        assertEquals(List.of(new SpaceSaving.Estimate(1, 10, 0), new SpaceSaving.Estimate(3, 4, 3)), sketch.top(5));
+    }
+
+    @Test
+    void resetStartsOverFromExactCounts() {
+        var sketch = new SpaceSaving(2);
+        sketch.offer(1, 1);
+        sketch.offer(2, 1);
+        sketch.offer(3, 5);
+
+        sketch.reset(List.of(new SpaceSaving.Estimate(7, 9, 4), new SpaceSaving.Estimate(8, 2, 0),
+                new SpaceSaving.Estimate(9, 1, 0)));
+
+        assertEquals(List.of(new SpaceSaving.Estimate(7, 9, 0), new SpaceSaving.Estimate(8, 2, 0)), sketch.top(5));
+    }
+
+    @Test
+    void topIsClampedToTheCapacity() {
+        var topLinks = new TopLinks(2, mock(UrlJdbcRepository.class));
+        topLinks.offer(1, 1);
+
+        assertEquals(1, topLinks.top(Integer.MAX_VALUE).size());
+        assertEquals(1, topLinks.top(-1).size());
+    }
+}
@@ -0,0 +1,68 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Time to first redirect of a node started with the fast-startup profile
+    against a database that already has the link - the autoscaler case.
+    The link is neither warmed up nor cached, so the redirect pays for the
+    deferred Hibernate bootstrap too. Budgets are generous for shared CI
+    runners, override with -Dhappyurl.startup.budget-ms / -Dhappyurl.first-redirect.budget-ms.
+ */
+
+class StartupTimeTests {
+    private static final long STARTUP_BUDGET_MS = Long.getLong("happyurl.startup.budget-ms", 10_000);
+    private static final long FIRST_REDIRECT_BUDGET_MS = Long.getLong("happyurl.first-redirect.budget-ms", 3_000);
+    private static final String URL = "https://example.com/startup";
+
+    @Test
+    void firstRedirectWithinBudget() throws Exception {
+        var database = "--spring.datasource.url=jdbc:h2:mem:startup-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+
+        long id;
+        try (var context = start(database)) {
+            id = context.getBean(UrlJdbcRepository.class)
+                    .upsert(URL, RedirectPolicy.TRACKED, UrlDigest.of(URL), 424242).id();
+        }
+
+        long started = System.nanoTime();
+        try (var context = start(database, "--spring.profiles.active=fast-startup",
+                "--happyurl.warmup.hot-links=0", "--happyurl.offheap.enabled=false")) {
+            long ready = System.nanoTime();
+
+            var port = context.getEnvironment().getProperty("local.server.port");
+            var code = context.getBean(ShortCodec.class).encode(id);
+            var response = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/my/" + code)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            long redirected = System.nanoTime();
+
+            assertEquals(302, response.statusCode());
+            assertEquals(URL, response.headers().firstValue("Location").orElse(null));
+
+            long startupMs = TimeUnit.NANOSECONDS.toMillis(ready - started);
+            long firstRedirectMs = TimeUnit.NANOSECONDS.toMillis(redirected - ready);
+            assertTrue(startupMs <= STARTUP_BUDGET_MS,
+                    "started in " + startupMs + " ms, budget " + STARTUP_BUDGET_MS + " ms");
+            assertTrue(firstRedirectMs <= FIRST_REDIRECT_BUDGET_MS,
+                    "first redirect after " + firstRedirectMs + " ms, budget " + FIRST_REDIRECT_BUDGET_MS + " ms");
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(HappyUrlApplication.class)
+                .run(Stream.concat(Stream.of("--server.port=0"), Stream.of(args)).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,74 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StatisticsTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ShortCodec shortCodec;
+
+    @Test
+    void pagesFollowTheCursorToTheEnd() {
+        var shortened = shorten(3);
+
+        var seen = new ArrayList<String>();
+        String after = null;
+        do {
+            var page = restTemplate.getForObject(after == null ? "/stat/page?size=2" : "/stat/page?size=2&after=" + after,
+                    UrlStatPageDTO.class);
+            assertTrue(page.getItems().size() <= 2);
+            page.getItems().forEach(x -> seen.add(x.getShortUrl()));
+            after = page.getNext();
+        } while (after != null);
+
+        var ids = seen.stream().mapToLong(shortCodec::decode).toArray();
+        for (int i = 1; i < ids.length; i++)
+            assertTrue(ids[i - 1] < ids[i], "keyset order, no repeats");
+        assertTrue(seen.containsAll(shortened));
+    }
+
+    @Test
+    void streamHoldsEveryLink() {
+        var shortened = shorten(2);
+
+        var all = Arrays.stream(restTemplate.getForObject("/stat", UrlStatDTO[].class))
+                .map(UrlStatDTO::getShortUrl)
+                .toList();
+
+        assertTrue(all.containsAll(shortened));
+        assertEquals(all.size(), new HashSet<>(all).size());
+    }
+
+    @Test
+    void invalidCursorIsABadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST,
+                restTemplate.getForEntity("/stat/page?after=-", String.class).getStatusCode());
+    }
+
+    private List<String> shorten(int count) {
+        var result = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            var urlDTO = new UrlDTO();
+            urlDTO.setUrl("https://example.com/stat-" + System.nanoTime());
+            result.add(restTemplate.postForObject("/shorten", urlDTO, UrlResultDTO.class).getShortUrl());
+        }
+
+        return result;
+    }
+}
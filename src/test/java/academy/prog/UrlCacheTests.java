@@ -0,0 +1,61 @@
+package academy.prog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlCacheTests {
+    private final RedirectTargets redirectTargets = new RedirectTargets(Duration.ofDays(1));
+    private final OffHeapUrlCache offHeap = new OffHeapUrlCache(true, 100, DataSize.ofKilobytes(16),
+            redirectTargets, new SimpleMeterRegistry());
+    private final UrlCache urlCache = new UrlCache(100, Duration.ofHours(1), Duration.ofHours(1), offHeap,
+            new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void missIsLoadedOnceThenHit() {
+        var target = redirectTargets.of("https://example.com/a", RedirectPolicy.TRACKED);
+
+        assertSame(target, urlCache.get(1, id -> load(target)));
+        assertSame(target, urlCache.get(1, id -> load(null)));
+        assertEquals(1, loads.get());
+        assertEquals("https://example.com/a", offHeap.get(1).location());
+    }
+
+    @Test
+    void unknownIdsAreRememberedAsMissing() {
+        assertNull(urlCache.get(2, id -> load(null)));
+        assertNull(urlCache.get(2, id -> load(null)));
+        assertEquals(1, loads.get());
+        assertTrue(urlCache.isMissing(2));
+
+        // shortened meanwhile
+        urlCache.put(2, redirectTargets.of("https://example.com/b", RedirectPolicy.PERMANENT));
+        assertFalse(urlCache.isMissing(2));
+        assertEquals("https://example.com/b", urlCache.get(2, id -> load(null)).location());
+    }
+
+    @Test
+    void offHeapEntriesArePromotedButNotPeeked() {
+        offHeap.put(3, redirectTargets.of("https://example.com/c", RedirectPolicy.TRACKED));
+
+        assertNull(urlCache.peek(3));
+        assertEquals("https://example.com/c", urlCache.getIfPresent(3).location());
+        assertEquals("https://example.com/c", urlCache.peek(3).location());
+        assertEquals(0, loads.get());
+    }
+
+    private RedirectTarget load(RedirectTarget target) {
+        loads.incrementAndGet();
+        return target;
+    }
+}
@@ -0,0 +1,42 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UrlCanonicalizerTests {
+    private final UrlCanonicalizer plain = new UrlCanonicalizer(false, new String[0]);
+    private final UrlCanonicalizer strict = new UrlCanonicalizer(true, new String[]{"utm_*", "fbclid"});
+
+    @Test
+    void syntaxIsNormalized() {
+        assertEquals("http://example.com/", plain.canonicalize(" HTTP://Example.COM:80 "));
+        assertEquals("https://example.com:8443/a", plain.canonicalize("https://example.com:8443/a"));
+        assertEquals("https://example.com/~a/b%2F%C3%BC?q=%3D", plain.canonicalize("https://example.com:443/%7ea/b%2f%c3%bc?q=%3d"));
+        assertEquals("https://user@example.com/P?x#Frag", plain.canonicalize("https://user@EXAMPLE.com/P?x#Frag"));
+        assertEquals("https://xn--bcher-kva.de/a%20b", plain.canonicalize("https://Bücher.DE/a b"));
+    }
+
+    @Test
+    void queryIsKeptAsIsByDefault() {
+        assertEquals("http://example.com/a?b=1&a=2&utm_source=x", plain.canonicalize("http://example.com/a?b=1&a=2&utm_source=x"));
+    }
+
+    @Test
+    void queryCanBeSortedAndStripped() {
+        assertEquals(strict.canonicalize("http://example.com/a?a=2&b=1"),
+                strict.canonicalize("HTTP://Example.com:80/a?b=1&a=2"));
+        assertEquals("http://example.com/a?a=2&a=1&b",
+                strict.canonicalize("http://example.com/a?b&a=2&UTM_Source=x&fbclid=y&a=1&utm_medium"));
+        assertEquals("http://example.com/a", strict.canonicalize("http://example.com/a?utm_source=x&&fbclid=1"));
+        assertEquals("http://example.com/a?fbclids=1", strict.canonicalize("http://example.com/a?fbclids=1"));
+    }
+
+    @Test
+    void invalidUrlsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> plain.canonicalize("mailto:a@example.com"));
+        assertThrows(IllegalArgumentException.class, () -> plain.canonicalize(null));
+        assertThrows(IllegalArgumentException.class, () -> plain.canonicalize(" "));
+    }
+}
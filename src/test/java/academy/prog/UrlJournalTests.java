@@ -0,0 +1,109 @@
+package academy.prog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlJournalTests {
+
+    record Logged(long id, String url, int tag) {
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void logIsReplayedAfterRestart() throws IOException {
+        var journal = new UrlJournal(dir, false);
+        journal.open((id, url, tag) -> {
+        });
+        journal.append(1, "https://example.com/a", 0);
+        journal.append(2, "https://example.com/überall", 2);
+        journal.close();
+
+        assertEquals(List.of(new Logged(1, "https://example.com/a", 0), new Logged(2, "https://example.com/überall", 2)),
+                replay(new UrlJournal(dir, false)));
+    }
+
+    @Test
+    void batchIsReplayedLikeSingleAppends() throws IOException {
+        var journal = new UrlJournal(dir, true);
+        journal.open((id, url, tag) -> {
+        });
+        journal.appendAll(List.of(new UrlJournal.Entry(1, "https://example.com/a", 0),
+                new UrlJournal.Entry(2, "https://example.com/b", 1)));
+        journal.append(3, "https://example.com/c", 2);
+        journal.close();
+
+        assertEquals(List.of(new Logged(1, "https://example.com/a", 0), new Logged(2, "https://example.com/b", 1),
+                new Logged(3, "https://example.com/c", 2)), replay(new UrlJournal(dir, false)));
+    }
+
+    @Test
+    void snapshotReplacesOlderSegments() throws IOException {
+        var journal = new UrlJournal(dir, false);
+        var table = new OffHeapUrlTable(100, 1 << 12, false);
+        journal.open((id, url, tag) -> {
+        });
+        for (long id = 1; id <= 3; id++) {
+            table.put(id, "https://example.com/" + id, 1);
+            journal.append(id, "https://example.com/" + id, 1);
+        }
+
+        long segment = journal.rotate();
+        table.put(4, "https://example.com/4", 0);
+        journal.append(4, "https://example.com/4", 0);
+        journal.writeSnapshot(table, segment);
+        journal.close();
+
+        var restarted = new UrlJournal(dir, false);
+        assertTrue(restarted.hasSnapshot());
+
+        var fromSnapshot = new ArrayList<Logged>();
+        assertEquals(4, restarted.readSnapshot((id, url, tag) -> fromSnapshot.add(new Logged(id, url, tag))));
+        assertTrue(fromSnapshot.contains(new Logged(2, "https://example.com/2", 1)));
+
+        // only the segment started by rotate() is left
+        assertEquals(List.of(new Logged(4, "https://example.com/4", 0)), replay(restarted));
+    }
+
+    @Test
+    void tornRecordEndsTheReplay() throws IOException {
+        var journal = new UrlJournal(dir, false);
+        journal.open((id, url, tag) -> {
+        });
+        journal.append(1, "https://example.com/a", 0);
+        journal.append(2, "https://example.com/b", 0);
+        journal.close();
+
+        try (var files = Files.list(dir)) {
+            var segment = files.filter(x -> x.toString().endsWith(".log")).findFirst().orElseThrow();
+            long size = Files.size(segment);
+            try (var channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(size - 3);
+            }
+        }
+
+        var restarted = new UrlJournal(dir, false);
+        assertFalse(restarted.hasSnapshot());
+        assertEquals(List.of(new Logged(1, "https://example.com/a", 0)), replay(restarted));
+    }
+
+    private static List<Logged> replay(UrlJournal journal) throws IOException {
+        var result = new ArrayList<Logged>();
+        journal.open((id, url, tag) -> result.add(new Logged(id, url, tag)));
+        journal.close();
+
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package academy.prog;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UrlRepositoryTests {
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void redirectIsReadWithoutLoadingTheEntity() {
+        long id = 1L << 42;
+        var url = "https://example.com/projection-" + System.nanoTime();
+        jdbcTemplate.update("insert into url_record (id, count, last_access, url, digest, redirect_status) " +
+                "values (?, 3, now(), ?, ?, 301)", id, url, UrlDigest.of(RedirectPolicy.PERMANENT.digestInput(url)));
+
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(Optional.of(new UrlRepository.Redirect(url, (short) 301)), urlRepository.findRedirectById(id));
+        assertEquals(Optional.empty(), urlRepository.findRedirectById(id + 1));
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(2, statistics.getQueryExecutionCount());
+    }
+}